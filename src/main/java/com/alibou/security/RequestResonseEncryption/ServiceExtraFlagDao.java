@@ -1,10 +0,0 @@
-//package com.alibou.security.RequestResonseEncryption;
-//
-//import org.springframework.data.jpa.repository.JpaRepository;
-//import org.springframework.stereotype.Repository;
-//
-//@Repository
-//public interface ServiceExtraFlagDao extends JpaRepository<ServiceExtraFlag, Long> {
-//
-//  public ServiceExtraFlag findByService(String service);
-//}
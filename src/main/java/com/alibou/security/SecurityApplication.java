@@ -6,11 +6,13 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import static com.alibou.security.enums.Role.ADMIN;
 import static com.alibou.security.enums.Role.MANAGER;
 
 @SpringBootApplication
+@EnableScheduling
 public class SecurityApplication {
 
 	public static void main(String[] args) {
@@ -1,34 +1,54 @@
 package com.alibou.security.config;
 
+import com.alibou.security.entity.User;
 import com.alibou.security.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Configuration
 @RequiredArgsConstructor
 public class ApplicationConfig{
+    private static final String BCRYPT_ID = "bcrypt";
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    //the UserDetailsService is CachingUserDetailsService
 
+    //called by the provider after a successful login whose stored hash is weaker than the current encoder
     @Bean
-    public UserDetailsService userDetailsService(){
-        return username -> userRepository.findByEmail(username)
-                .orElseThrow(()->new UsernameNotFoundException("user not found"));
+    public UserDetailsPasswordService userDetailsPasswordService(){
+        return (user, newPassword) -> {
+            userRepository.updatePassword(user.getUsername(), newPassword);
+            eventPublisher.publishEvent(new UserChangedEvent(null, user.getUsername()));
+            if (user instanceof User entity) {
+                entity.setPassword(newPassword);
+            }
+            return user;
+        };
     }
 
     @Bean
-    public AuthenticationProvider authenticationProvider(){
+    public AuthenticationProvider authenticationProvider(UserDetailsService userDetailsService, PasswordEncoder passwordEncoder){
         DaoAuthenticationProvider authenticationProvider = new DaoAuthenticationProvider();
-        authenticationProvider.setUserDetailsService(userDetailsService());
-        authenticationProvider.setPasswordEncoder(passwordEncoder());
+        authenticationProvider.setUserDetailsService(userDetailsService);
+        authenticationProvider.setPasswordEncoder(passwordEncoder);
+        authenticationProvider.setUserDetailsPasswordService(userDetailsPasswordService());
         return authenticationProvider;
     }
 
@@ -37,9 +57,24 @@ public class ApplicationConfig{
         return configuration.getAuthenticationManager();
     }
 
+    /*
+     * hashes are stored as {bcrypt}$2a$<cost>$..., the id prefix lets another algorithm be added later
+     * while old hashes keep working. hashes written before the prefix existed are plain bcrypt
+     * and still match through the default encoder. the cost is measured at startup unless fixed by
+     * app-auth-bcrypt-strength, and hashes with a lower cost (or no prefix) are re-encoded on the next login.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                           @Value("${app-auth-bcrypt-strength}") int strength,
+                                           @Value("${app-auth-bcrypt-target-ms}") long targetMillis,
+                                           @Value("${app-auth-bcrypt-min-strength}") int minStrength,
+                                           @Value("${app-auth-bcrypt-max-strength}") int maxStrength) {
+        int cost = strength > 0 ? strength : BCryptCalibration.calibrate(targetMillis, minStrength, maxStrength);
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put(BCRYPT_ID, new BCryptPasswordEncoder(cost));
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(BCRYPT_ID, encoders);
+        delegating.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder(cost));
+        return new TimedPasswordEncoder(delegating, meterRegistry);
     }
 
 //    @Override
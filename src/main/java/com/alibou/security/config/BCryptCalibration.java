@@ -0,0 +1,48 @@
+package com.alibou.security.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+/*
+ * picks the bcrypt cost for the hardware we are running on.
+ * every cost step doubles the work, so hashes are timed from the minimum cost upwards
+ * and the cost whose time is closest to the target latency wins.
+ */
+public final class BCryptCalibration {
+
+    static Logger logger = LoggerFactory.getLogger(BCryptCalibration.class);
+    private static final String SAMPLE_PASSWORD = "calibration-sample-password";
+    private static final int SAMPLES = 3;
+
+    private BCryptCalibration() {
+    }
+
+    public static int calibrate(long targetMillis, int minStrength, int maxStrength) {
+        //first hash loads and warms the bcrypt code, it is not representative
+        BCrypt.hashpw(SAMPLE_PASSWORD, BCrypt.gensalt(4));
+        int chosen = minStrength;
+        long chosenMillis = measure(minStrength);
+        for (int strength = minStrength + 1; strength <= maxStrength && chosenMillis < targetMillis; strength++) {
+            long millis = measure(strength);
+            if (Math.abs(millis - targetMillis) > Math.abs(chosenMillis - targetMillis)) {
+                break;
+            }
+            chosen = strength;
+            chosenMillis = millis;
+        }
+        logger.info("bcrypt strength {} selected, about {} ms per hash (target {} ms)", chosen, chosenMillis, targetMillis);
+        return chosen;
+    }
+
+    //best of a few runs, a gc pause or a busy core should not push the cost down
+    private static long measure(int strength) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw(SAMPLE_PASSWORD, BCrypt.gensalt(strength));
+            best = Math.min(best, (System.nanoTime() - start) / 1_000_000);
+        }
+        return best;
+    }
+}
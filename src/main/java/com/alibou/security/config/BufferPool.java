@@ -0,0 +1,163 @@
+package com.alibou.security.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * reusable byte buffers for response capture and payload encryption (app-buffer-pool-*).
+ * buffers come in power of two size classes from min-capacity to max-capacity, each class keeps at most
+ * max-per-class idle buffers, so the pool never holds more than the sum of those. a request for more than
+ * max-capacity gets a plain allocation that is dropped on release. heap buffers by default, direct=true for
+ * stages that hand the bytes to channels.
+ * metrics: buffers.pool.acquired (result hit / miss / oversize), buffers.pool.released (result pooled / discarded),
+ * buffers.pool.idle.bytes and buffers.pool.outstanding.
+ */
+@Component
+public class BufferPool {
+
+    private final int minShift;
+    private final int maxCapacity;
+    private final boolean direct;
+    private final ArrayBlockingQueue<ByteBuffer>[] classes;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter oversize;
+    private final Counter pooled;
+    private final Counter discarded;
+
+    @SuppressWarnings("unchecked")
+    public BufferPool(@Value("${app-buffer-pool-min-capacity}") int minCapacity,
+                      @Value("${app-buffer-pool-max-capacity}") int maxCapacity,
+                      @Value("${app-buffer-pool-max-per-class}") int maxPerClass,
+                      @Value("${app-buffer-pool-direct}") boolean direct,
+                      MeterRegistry meterRegistry) {
+        this.minShift = 32 - Integer.numberOfLeadingZeros(Math.max(minCapacity, 16) - 1);
+        int maxShift = Math.max(minShift, 32 - Integer.numberOfLeadingZeros(maxCapacity - 1));
+        this.maxCapacity = 1 << maxShift;
+        this.direct = direct;
+        this.classes = new ArrayBlockingQueue[maxShift - minShift + 1];
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new ArrayBlockingQueue<>(Math.max(maxPerClass, 1));
+        }
+        this.hits = acquired(meterRegistry, "hit");
+        this.misses = acquired(meterRegistry, "miss");
+        this.oversize = acquired(meterRegistry, "oversize");
+        this.pooled = released(meterRegistry, "pooled");
+        this.discarded = released(meterRegistry, "discarded");
+        Gauge.builder("buffers.pool.idle.bytes", this, BufferPool::idleBytes)
+                .description("bytes held by idle pooled buffers")
+                .register(meterRegistry);
+        Gauge.builder("buffers.pool.outstanding", outstanding, AtomicInteger::get)
+                .description("buffers handed out and not released yet")
+                .register(meterRegistry);
+    }
+
+    //an empty buffer (position 0, limit = capacity) of at least minCapacity bytes
+    public ByteBuffer acquire(int minCapacity) {
+        outstanding.incrementAndGet();
+        if (minCapacity > maxCapacity) {
+            oversize.increment();
+            return allocate(minCapacity);
+        }
+        int index = classIndex(minCapacity);
+        ByteBuffer buffer = classes[index].poll();
+        if (buffer == null) {
+            misses.increment();
+            return allocate(1 << (index + minShift));
+        }
+        hits.increment();
+        return buffer.clear();
+    }
+
+    //a buffer of at least minCapacity holding the bytes written to buffer so far, the old one goes back to the pool
+    public ByteBuffer grow(ByteBuffer buffer, int minCapacity) {
+        ByteBuffer grown = acquire(Math.max(minCapacity, buffer.capacity() * 2));
+        grown.put(buffer.flip());
+        release(buffer);
+        return grown;
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        outstanding.decrementAndGet();
+        int capacity = buffer.capacity();
+        //only exact class sizes of the right kind go back, oversize and foreign buffers are left to the gc
+        if (capacity <= maxCapacity && Integer.bitCount(capacity) == 1 && capacity >= 1 << minShift
+                && buffer.isDirect() == direct && classes[classIndex(capacity)].offer(buffer)) {
+            pooled.increment();
+        } else {
+            discarded.increment();
+        }
+    }
+
+    //servlet streams only take arrays: a heap buffer is written straight from its array, a direct one is copied out
+    public static void write(ByteBuffer buffer, OutputStream out) throws IOException {
+        if (buffer.hasArray()) {
+            out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return;
+        }
+        byte[] transfer = new byte[Math.min(buffer.remaining(), 8192)];
+        while (buffer.hasRemaining()) {
+            int n = Math.min(transfer.length, buffer.remaining());
+            buffer.get(transfer, 0, n);
+            out.write(transfer, 0, n);
+        }
+    }
+
+    //reads up to length bytes into the buffer, returns how many arrived before the end of the stream
+    public static int read(InputStream in, ByteBuffer buffer, int length) throws IOException {
+        if (buffer.hasArray()) {
+            int n = in.readNBytes(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            buffer.position(buffer.position() + n);
+            return n;
+        }
+        byte[] bytes = in.readNBytes(length);
+        buffer.put(bytes);
+        return bytes.length;
+    }
+
+    private int classIndex(int capacity) {
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(capacity, 1) - 1);
+        return Math.max(shift - minShift, 0);
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    private double idleBytes() {
+        long bytes = 0;
+        for (int i = 0; i < classes.length; i++) {
+            bytes += (long) classes[i].size() << (i + minShift);
+        }
+        return bytes;
+    }
+
+    private static Counter acquired(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("buffers.pool.acquired")
+                .description("buffers handed out, from the pool (hit) or newly allocated")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Counter released(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("buffers.pool.released")
+                .description("buffers given back, kept for reuse (pooled) or left to the gc")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,107 @@
+package com.alibou.security.config;
+
+import com.alibou.security.dto.AuthenticatedUser;
+import com.alibou.security.entity.User;
+import com.alibou.security.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/*
+ * user lookups by email served from memory (app-user-cache-*).
+ * entries are evicted by size and by age, the age bounds how long a change made on another instance can go unseen.
+ * concurrent misses for one email wait for a single query instead of each running their own.
+ * local changes publish a UserChangedEvent and the entry is dropped once the change is committed.
+ * callers get a copy, the cached user is never handed out (login sets fields on the user it gets).
+ * with a read replica, misses and users who just wrote are read from the primary (ReplicaReadFallback).
+ */
+@Component
+public class CachingUserDetailsService implements UserDetailsService {
+
+    private final UserRepository userRepository;
+    private final ReplicaReadFallback replicaReadFallback;
+    private final boolean enabled;
+    private final Cache<String, User> cache;
+
+    public CachingUserDetailsService(UserRepository userRepository,
+                                     ReplicaReadFallback replicaReadFallback,
+                                     @Value("${app-user-cache-enabled}") boolean enabled,
+                                     @Value("${app-user-cache-max-size}") long maxSize,
+                                     @Value("${app-user-cache-ttl-seconds}") long ttlSeconds,
+                                     MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.replicaReadFallback = replicaReadFallback;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "users.details");
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return findUser(username).orElseThrow(() -> new UsernameNotFoundException("user not found"));
+    }
+
+    public Optional<User> findUser(String email) {
+        if (!enabled) {
+            return load(email);
+        }
+        //a missing user is not cached, the loader returning null leaves no entry
+        User cached = cache.get(email, key -> load(key).orElse(null));
+        return Optional.ofNullable(cached).map(CachingUserDetailsService::copyOf);
+    }
+
+    //without the cache only the three columns are selected
+    public Optional<AuthenticatedUser> findPrincipal(String email) {
+        if (!enabled) {
+            return replicaReadFallback.find(email,
+                    () -> userRepository.findPrincipalByEmail(email),
+                    () -> userRepository.findPrincipalByEmail(email));
+        }
+        return Optional.ofNullable(cache.get(email, key -> load(key).orElse(null)))
+                .map(AuthenticatedUser::from);
+    }
+
+    private Optional<User> load(String email) {
+        return replicaReadFallback.find(email,
+                () -> userRepository.findByEmail(email),
+                () -> userRepository.findUncachedByEmail(email));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (event.email() != null) {
+            cache.invalidate(event.email());
+        }
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private static User copyOf(User user) {
+        return User.builder()
+                .id(user.getId())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .email(user.getEmail())
+                .password(user.getPassword())
+                .role(user.getRole())
+                .tokenVersion(user.getTokenVersion())
+                .build();
+    }
+}
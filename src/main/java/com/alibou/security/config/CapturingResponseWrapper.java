@@ -0,0 +1,265 @@
+package com.alibou.security.config;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/*
+ * keeps the body the application writes for a post-processing filter, in buffers from the BufferPool.
+ * two ways to hand it on:
+ * - no Stage: the whole body is kept, the buffer grows (from the pool) as needed, and the filter takes it with
+ *   body() / writeTo() once the chain returns
+ * - with a Stage: the body is passed on in segments of segment-size bytes, each as soon as it is full and more
+ *   data arrives, the last one on finish(). memory stays at one segment whatever the body size
+ * either way the stage gets a view of the pooled buffer, never a copy. write(byte[], int, int) puts the whole
+ * range at once, only a segment boundary splits it.
+ * Content-Length would describe the body before post-processing and is dropped.
+ * release() gives the buffers back, the filter calls it once it is done with the response.
+ */
+public class CapturingResponseWrapper extends HttpServletResponseWrapper {
+
+    //takes one segment in read mode, must be done with it on return, the buffer is reused for the next one
+    public interface Stage {
+        void accept(ByteBuffer segment, boolean last) throws IOException;
+    }
+
+    private final BufferPool bufferPool;
+    private final int segmentSize;
+    private Stage stage;
+    private CaptureOutputStream outputStream;
+    private PrintWriter writer;
+
+    public CapturingResponseWrapper(HttpServletResponse response, BufferPool bufferPool, int segmentSize) {
+        super(response);
+        this.bufferPool = bufferPool;
+        this.segmentSize = segmentSize;
+    }
+
+    //called when the application opens the body, null keeps the whole body
+    protected Stage openStage() throws IOException {
+        return null;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called for this response");
+        }
+        return open();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called for this response");
+            }
+            writer = new PrintWriter(new OutputStreamWriter(open(), Charset.forName(getCharacterEncoding())));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            super.setIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            super.addIntHeader(name, value);
+        }
+    }
+
+    //a captured body is not on the wire yet, only a staged one has anything to flush
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (stage != null) {
+            super.flushBuffer();
+        }
+    }
+
+    //what the application wrote so far is dropped along with the container's buffer, the next open starts over
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        discard();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        discard();
+    }
+
+    //passes the last segment to the stage, called once the application is done with the response
+    public void finish() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream != null) {
+            outputStream.finish();
+        }
+    }
+
+    //the whole body without a stage: a read-only view of the pooled buffer, valid until release()
+    public ByteBuffer body() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (outputStream == null) {
+            return ByteBuffer.allocate(0);
+        }
+        return outputStream.buffer.duplicate().flip().asReadOnlyBuffer();
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        BufferPool.write(body(), out);
+    }
+
+    public void release() {
+        if (outputStream != null) {
+            bufferPool.release(outputStream.buffer);
+            outputStream.buffer = null;
+        }
+    }
+
+    private void discard() {
+        release();
+        outputStream = null;
+        writer = null;
+        stage = null;
+    }
+
+    private ServletOutputStream open() throws IOException {
+        if (outputStream == null) {
+            stage = openStage();
+            outputStream = new CaptureOutputStream(super.getOutputStream());
+        }
+        return outputStream;
+    }
+
+    private final class CaptureOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream target;
+        private ByteBuffer buffer;
+        private boolean finished;
+
+        private CaptureOutputStream(ServletOutputStream target) {
+            this.target = target;
+            this.buffer = bufferPool.acquire(segmentSize).limit(segmentSize);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureOpen();
+            if (!buffer.hasRemaining()) {
+                full();
+            }
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureOpen();
+            while (len > 0) {
+                if (!buffer.hasRemaining()) {
+                    full();
+                }
+                int n = Math.min(len, buffer.remaining());
+                buffer.put(b, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (stage != null) {
+                target.flush();
+            }
+        }
+
+        //the application closing its stream ends the body
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+
+        @Override
+        public boolean isReady() {
+            return target.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException("non-blocking writes of captured responses are not supported");
+        }
+
+        private void full() throws IOException {
+            if (stage != null) {
+                stage.accept(buffer.flip(), false);
+                buffer.clear().limit(segmentSize);
+            } else {
+                buffer = bufferPool.grow(buffer, buffer.capacity() * 2);
+            }
+        }
+
+        private void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (stage != null) {
+                stage.accept(buffer.flip(), true);
+                buffer.clear();
+                target.flush();
+            }
+        }
+
+        private void ensureOpen() throws IOException {
+            if (finished) {
+                throw new IOException("response body already finished");
+            }
+            if (buffer == null) {
+                throw new IOException("response body already released");
+            }
+        }
+    }
+}
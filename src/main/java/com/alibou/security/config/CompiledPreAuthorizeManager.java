@@ -0,0 +1,232 @@
+package com.alibou.security.config;
+
+import com.alibou.security.dto.AuthenticatedUser;
+import com.alibou.security.enums.Permission;
+import com.alibou.security.enums.Role;
+import org.aopalliance.intercept.MethodInvocation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.MethodClassKey;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.authorization.method.PreAuthorizeAuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * @PreAuthorize without spel on every call.
+ * expressions made of hasRole / hasAnyRole / hasAuthority / hasAnyAuthority joined by and / or are parsed once into
+ * role and permission bit masks (see PermissionAuthorizationManager). since roles are a fixed enum the decision for
+ * each role is then computed up front, so a request from an AuthenticatedUser principal is one bit test per (role, method).
+ * every controller method is compiled when the context starts, anything else on first call.
+ * expressions this parser does not understand are handed to spring's PreAuthorizeAuthorizationManager unchanged.
+ * like spring, an annotation on the method replaces the one on the class.
+ */
+public class CompiledPreAuthorizeManager implements AuthorizationManager<MethodInvocation>,
+        ApplicationListener<ContextRefreshedEvent> {
+
+    static Logger logger = LoggerFactory.getLogger(CompiledPreAuthorizeManager.class);
+
+    private static final Pattern TERM = Pattern.compile("(hasRole|hasAnyRole|hasAuthority|hasAnyAuthority)\\((.*)\\)");
+    private static final Pattern ARGUMENT = Pattern.compile("\\s*'([^']*)'\\s*(,|$)");
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    private final boolean enabled;
+    private final PreAuthorizeAuthorizationManager spel = new PreAuthorizeAuthorizationManager();
+    private final Map<MethodClassKey, Rule> rules = new ConcurrentHashMap<>();
+
+    public CompiledPreAuthorizeManager(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, MethodInvocation invocation) {
+        if (!enabled) {
+            return spel.check(authentication, invocation);
+        }
+        Class<?> targetClass = invocation.getThis() != null
+                ? AopUtils.getTargetClass(invocation.getThis())
+                : invocation.getMethod().getDeclaringClass();
+        Rule rule = rule(invocation.getMethod(), targetClass);
+        if (rule == Rule.NONE) {
+            return null;
+        }
+        if (rule == Rule.UNSUPPORTED) {
+            return spel.check(authentication, invocation);
+        }
+        return new AuthorizationDecision(rule.isGranted(authentication.get()));
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        event.getApplicationContext().getBeansOfType(RequestMappingHandlerMapping.class).values()
+                .forEach(mapping -> mapping.getHandlerMethods().values()
+                        .forEach(handler -> rule(handler.getMethod(), handler.getBeanType())));
+        long secured = rules.values().stream().filter(rule -> rule != Rule.NONE).count();
+        long fallbacks = rules.values().stream().filter(rule -> rule == Rule.UNSUPPORTED).count();
+        logger.info("compiled @PreAuthorize for {} methods ({} left to spel)", secured - fallbacks, fallbacks);
+    }
+
+    Rule rule(Method method, Class<?> targetClass) {
+        return rules.computeIfAbsent(new MethodClassKey(method, targetClass), key -> compile(method, targetClass));
+    }
+
+    private static Rule compile(Method method, Class<?> targetClass) {
+        Method specificMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+        PreAuthorize annotation = AnnotatedElementUtils.findMergedAnnotation(specificMethod, PreAuthorize.class);
+        if (annotation == null) {
+            annotation = AnnotatedElementUtils.findMergedAnnotation(targetClass, PreAuthorize.class);
+        }
+        if (annotation == null) {
+            return Rule.NONE;
+        }
+        Rule rule = parse(annotation.value().trim());
+        if (rule == Rule.UNSUPPORTED) {
+            logger.debug("@PreAuthorize(\"{}\") on {} is evaluated by spel", annotation.value(), specificMethod);
+        }
+        return rule;
+    }
+
+    //or of ands of terms, no parentheses or negation
+    static Rule parse(String expression) {
+        List<int[]> alternatives = new ArrayList<>();
+        for (String alternative : expression.split("\\s+or\\s+")) {
+            int[] masks = null;
+            for (String term : alternative.split("\\s+and\\s+")) {
+                int[] parsed = parseTerm(term.trim());
+                if (parsed == null) {
+                    return Rule.UNSUPPORTED;
+                }
+                masks = masks == null ? parsed : and(masks, parsed);
+            }
+            alternatives.add(masks);
+        }
+        return new Rule(alternatives.toArray(int[][]::new));
+    }
+
+    //a term as {roles, permissions, roles, permissions, ...}: each pair is one "any of" requirement
+    private static int[] parseTerm(String term) {
+        Matcher matcher = TERM.matcher(term);
+        if (!matcher.matches()) {
+            return null;
+        }
+        boolean roleCheck = matcher.group(1).startsWith("hasRole") || matcher.group(1).startsWith("hasAnyRole");
+        List<String> arguments = parseArguments(matcher.group(2));
+        if (arguments == null || arguments.isEmpty()
+                || (matcher.group(1).equals("hasRole") || matcher.group(1).equals("hasAuthority")) && arguments.size() != 1) {
+            return null;
+        }
+        int roles = 0;
+        int permissions = 0;
+        for (String argument : arguments) {
+            if (roleCheck || argument.startsWith(ROLE_PREFIX)) {
+                Role role = roleOf(argument.startsWith(ROLE_PREFIX) ? argument.substring(ROLE_PREFIX.length()) : argument);
+                if (role == null) {
+                    return null;
+                }
+                roles |= role.mask();
+            } else {
+                Permission permission = Permission.fromAuthority(argument);
+                if (permission == null) {
+                    return null;
+                }
+                permissions |= permission.mask();
+            }
+        }
+        return new int[]{roles, permissions};
+    }
+
+    private static List<String> parseArguments(String arguments) {
+        List<String> values = new ArrayList<>();
+        Matcher matcher = ARGUMENT.matcher(arguments);
+        int position = 0;
+        while (position < arguments.length()) {
+            if (!matcher.find(position) || matcher.start() != position) {
+                return null;
+            }
+            values.add(matcher.group(1));
+            position = matcher.end();
+        }
+        return values;
+    }
+
+    private static int[] and(int[] left, int[] right) {
+        int[] combined = new int[left.length + right.length];
+        System.arraycopy(left, 0, combined, 0, left.length);
+        System.arraycopy(right, 0, combined, left.length, right.length);
+        return combined;
+    }
+
+    private static Role roleOf(String name) {
+        for (Role role : Role.values()) {
+            if (role.name().equals(name)) {
+                return role;
+            }
+        }
+        return null;
+    }
+
+    static final class Rule {
+
+        static final Rule NONE = new Rule(new int[0][]);
+        static final Rule UNSUPPORTED = new Rule(new int[0][]);
+
+        private final int[][] alternatives;
+        //bit per role ordinal, set when that role's own authorities satisfy the rule
+        private final int grantedRoles;
+
+        private Rule(int[][] alternatives) {
+            this.alternatives = alternatives;
+            int granted = 0;
+            for (Role role : Role.values()) {
+                if (matches(role.mask(), role.getPermissionMask())) {
+                    granted |= role.mask();
+                }
+            }
+            this.grantedRoles = granted;
+        }
+
+        boolean isGranted(Authentication authentication) {
+            if (authentication == null || !authentication.isAuthenticated()
+                    || authentication instanceof AnonymousAuthenticationToken) {
+                return false;
+            }
+            if (authentication.getPrincipal() instanceof AuthenticatedUser user && user.role() != null) {
+                return (grantedRoles & user.role().mask()) != 0;
+            }
+            return matches(PermissionAuthorizationManager.roleMaskOf(authentication),
+                    PermissionAuthorizationManager.permissionMaskOf(authentication));
+        }
+
+        boolean matches(int roles, int permissions) {
+            for (int[] requirements : alternatives) {
+                boolean all = true;
+                for (int i = 0; i < requirements.length && all; i += 2) {
+                    all = (requirements[i] & roles) != 0 || (requirements[i + 1] & permissions) != 0;
+                }
+                if (all) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
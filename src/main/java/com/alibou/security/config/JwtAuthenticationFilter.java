@@ -1,6 +1,9 @@
 package com.alibou.security.config;
 
+import com.alibou.security.dto.AuthenticatedUser;
+import com.alibou.security.dto.TokenState;
 import com.alibou.security.repository.TokenRepository;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,10 +12,9 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
+import org.springframework.web.cors.CorsUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
@@ -22,8 +24,18 @@ import java.io.IOException;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private  final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
+    private final CachingUserDetailsService cachingUserDetailsService;
     private final TokenRepository tokenRepository;
+    private final UserVersionRegistry userVersionRegistry;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final ReplicaReadFallback replicaReadFallback;
+
+    //public routes and cors preflight never carry a usable token, skip header parsing and the context setup
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return CorsUtils.isPreFlightRequest(request) || SecurityConfiguration.PUBLIC_ROUTES.matches(request);
+    }
+
     @Override
     protected void doFilterInternal( HttpServletRequest request,
                                      HttpServletResponse response,
@@ -37,21 +49,32 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
           return;
       }
       jwt=authHeader.substring(7);
-//      extract userEmail from jwt token
-        userEmail= jwtService.extractUserName(jwt);
+//      verify the jwt once and read userEmail from the verified claims
+        final VerifiedToken verifiedToken;
+        try {
+            verifiedToken = jwtService.verify(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
+            //bad signature, malformed or expired token -> continue as anonymous
+            filterChain.doFilter(request,response);
+            return;
+        }
+        userEmail= verifiedToken.subject();
         if(userEmail != null && SecurityContextHolder.getContext().getAuthentication()==null){
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+            //right after this user's login the replica may not have the new rows yet, read the primary
+            AuthenticatedUser principal = replicaReadFallback.read(userEmail, () -> resolvePrincipal(verifiedToken));
+            if (principal == null) {
+                filterChain.doFilter(request,response);
+                return;
+            }
             /* here even if the token is expired it still autheticates the user and lets him access the apis
             * to avoid that happening need to fetch the token from token table and add few checks*/
 
-            var isTokenValid = tokenRepository.findByToken(jwt)
-                    .map(t-> !t.isExpired() && !t.isRevoked())
-                    .orElse(false);
-            if(jwtService.isTokenValid(jwt,userDetails) && isTokenValid){
+            var isTokenValid = replicaReadFallback.read(userEmail, () -> isTokenActive(verifiedToken));
+            if(jwtService.isTokenValid(verifiedToken,principal.email()) && isTokenValid){
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails,
+                        principal,
                         null,
-                        userDetails.getAuthorities()
+                        principal.authorities()
                 );
                 authToken.setDetails(
                         new WebAuthenticationDetailsSource().buildDetails(request)
@@ -61,4 +84,36 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request,response);
     }
+
+    //access tokens are checked against the in-memory revocation list, tokens without a type still go to the table
+    //in stateless mode a token carrying a version only has to match the user's current version
+    private boolean isTokenActive(VerifiedToken verifiedToken) {
+        String type = verifiedToken.claim(JwtService.CLAIM_TYPE, String.class);
+        Number userId = verifiedToken.claim(JwtService.CLAIM_USER_ID, Number.class);
+        Number version = verifiedToken.claim(JwtService.CLAIM_VERSION, Number.class);
+        if (jwtService.isStatelessRevocation() && userId != null && version != null) {
+            return JwtService.TYPE_ACCESS.equals(type)
+                    && userVersionRegistry.isCurrent(userId.intValue(), version.intValue());
+        }
+        if (type == null) {
+            return replicaReadFallback.orPrimary(() -> tokenRepository.findStateByTokenHash(verifiedToken.tokenHash()))
+                    .map(TokenState::isActive)
+                    .orElse(false);
+        }
+        return JwtService.TYPE_ACCESS.equals(type)
+                && !tokenRevocationRegistry.isRevoked(verifiedToken.tokenHash());
+    }
+
+    //in authorities-in-token mode the principal comes from the signed claims, no user table read
+    //otherwise the principal comes from the user cache, or a select of id, email and role without it
+    private AuthenticatedUser resolvePrincipal(VerifiedToken verifiedToken) {
+        if (jwtService.isAuthoritiesInToken()) {
+            AuthenticatedUser principal = jwtService.principalFromClaims(verifiedToken);
+            if (principal != null) {
+                int tokenVersion = verifiedToken.claim(JwtService.CLAIM_VERSION, Number.class).intValue();
+                return userVersionRegistry.isCurrent(principal.id(), tokenVersion) ? principal : null;
+            }
+        }
+        return cachingUserDetailsService.findPrincipal(verifiedToken.subject()).orElse(null);
+    }
 }
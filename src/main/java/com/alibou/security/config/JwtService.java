@@ -1,23 +1,43 @@
 package com.alibou.security.config;
 
+import com.alibou.security.dto.AuthenticatedUser;
+import com.alibou.security.entity.User;
+import com.alibou.security.enums.Role;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.UUID;
 
 @Service
+@RequiredArgsConstructor
 public class JwtService {
 
+    //claims written into access tokens when app-jwt-authorities-in-token is on
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_VERSION = "ver";
+
+    //access or refresh, tokens issued before this claim existed have none
+    public static final String CLAIM_TYPE = "typ";
+    public static final String TYPE_ACCESS = "access";
+    public static final String TYPE_REFRESH = "refresh";
+
+    private final VerifiedTokenCache verifiedTokenCache;
+
     @Value("${application.security.jwt}")
     private  String SECRET_KEY;
     @Value("${app-jwt-token-expiration}")
@@ -26,13 +46,44 @@ public class JwtService {
     @Value("${app-jwt-refresh-token-expiration-milliseconds}")
     private long refreshExpiration;
 
-    public String extractUserName(String token){
-       return extractClaim(token,Claims::getSubject);
+    @Value("${app-jwt-authorities-in-token}")
+    private boolean authoritiesInToken;
+
+    //tokens carry uid and ver, revocation is a version bump instead of a token table/deny list lookup
+    @Value("${app-jwt-stateless-revocation}")
+    private boolean statelessRevocation;
+
+    //key and parser are thread safe, so they are built once instead of on every call
+    private Key signInKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void init() {
+        byte[] keyBytes = Decoders.BASE64.decode(SECRET_KEY);
+        signInKey = Keys.hmacShaKeyFor(keyBytes);
+        jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signInKey)
+                .build();
     }
-//extracting one single claim
-    public <T> T extractClaim(String token, Function<Claims,T> claimsToResolve){
+
+    //parses and checks the signature exactly once, throws JwtException when the token is invalid or expired
+    //a token seen before is answered from the cache without running the hmac again
+    public VerifiedToken verify(String token) {
+        final String tokenHash = TokenHasher.hash(token);
+        VerifiedToken cached = verifiedTokenCache.get(tokenHash);
+        if (cached != null) {
+            return cached;
+        }
         final Claims claims = extractAllClaims(token);
-        return claimsToResolve.apply(claims);
+        VerifiedToken verified = new VerifiedToken(
+                tokenHash,
+                claims.getSubject(),
+                claims.getIssuedAt(),
+                claims.getExpiration(),
+                Collections.unmodifiableMap(new HashMap<>(claims))
+        );
+        verifiedTokenCache.put(verified);
+        return verified;
     }
 
     public String generateToken(UserDetails userDetails){
@@ -40,48 +91,78 @@ public class JwtService {
     }
 
 
-    private String buildToken(Map<String,Object> extraClaims, UserDetails userDetails, long expiration){
+    private String buildToken(Map<String,Object> extraClaims, UserDetails userDetails, long expiration, String type){
+        long now = System.currentTimeMillis();
         return Jwts.builder()
                 .setClaims(extraClaims)
+                .claim(CLAIM_TYPE, type)
+                //random jti so two tokens issued in the same second never share a hash
+                .setId(UUID.randomUUID().toString())
                 .setSubject(userDetails.getUsername())
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + expiration))
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public String generateToken(Map<String,Object> extraClaims, UserDetails userDetails){
-        return buildToken(extraClaims, userDetails, jwtExpiration);
+        if ((authoritiesInToken || statelessRevocation) && userDetails instanceof User user) {
+            extraClaims = new HashMap<>(extraClaims);
+            extraClaims.put(CLAIM_USER_ID, user.getId());
+            extraClaims.put(CLAIM_VERSION, user.getTokenVersion());
+            if (authoritiesInToken) {
+                //permissions follow from the role, so they are not put into the token
+                extraClaims.put(CLAIM_ROLE, user.getRole().name());
+            }
+        }
+        return buildToken(extraClaims, userDetails, jwtExpiration, TYPE_ACCESS);
     }
 
     public String generateRefreshToken(UserDetails userDetails){
-        return buildToken(new HashMap<>(), userDetails, refreshExpiration);
+        Map<String, Object> claims = new HashMap<>();
+        if (statelessRevocation && userDetails instanceof User user) {
+            claims.put(CLAIM_USER_ID, user.getId());
+            claims.put(CLAIM_VERSION, user.getTokenVersion());
+        }
+        return buildToken(claims, userDetails, refreshExpiration, TYPE_REFRESH);
     }
 
-    public boolean isTokenValid(String token, UserDetails userDetails){
-        final String username=extractUserName(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+    public boolean isTokenValid(VerifiedToken token, UserDetails userDetails){
+        return isTokenValid(token, userDetails.getUsername());
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public boolean isTokenValid(VerifiedToken token, String username){
+        return token.subject() != null
+                && token.subject().equals(username)
+                && !token.isExpired();
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token,Claims::getExpiration);
+    public boolean isStatelessRevocation() {
+        return statelessRevocation;
+    }
+
+    public boolean isAuthoritiesInToken() {
+        return authoritiesInToken;
+    }
+
+    //principal rebuilt from the claims, null unless the token carries the full set of authority claims (see generateToken)
+    public AuthenticatedUser principalFromClaims(VerifiedToken token) {
+        Number userId = token.claim(CLAIM_USER_ID, Number.class);
+        String role = token.claim(CLAIM_ROLE, String.class);
+        Number version = token.claim(CLAIM_VERSION, Number.class);
+        if (userId == null || role == null || version == null) {
+            return null;
+        }
+        try {
+            return new AuthenticatedUser(userId.intValue(), token.subject(), Role.valueOf(role));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
 
     private Claims extractAllClaims(String token){
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
+        return jwtParser
                 .parseClaimsJws(token)
                 .getBody();
     }
-
-    private Key getSignInKey() {
-        byte[] keyBytes= Decoders.BASE64.decode(SECRET_KEY);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
 }
@@ -0,0 +1,93 @@
+package com.alibou.security.config;
+
+import com.alibou.security.exception.ApiException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * token buckets per email and per client ip in front of /authenticate,
+ * so password guessing is refused before it costs a bcrypt verification and a user query.
+ * buckets live in bounded caches and disappear once a key has been idle for a while.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private final boolean enabled;
+    private final Limit emailLimit;
+    private final Limit ipLimit;
+    private final Counter rejected;
+
+    public LoginRateLimiter(@Value("${app-auth-rate-limit-enabled}") boolean enabled,
+                            @Value("${app-auth-rate-limit-email-burst}") int emailBurst,
+                            @Value("${app-auth-rate-limit-email-per-minute}") int emailPerMinute,
+                            @Value("${app-auth-rate-limit-ip-burst}") int ipBurst,
+                            @Value("${app-auth-rate-limit-ip-per-minute}") int ipPerMinute,
+                            @Value("${app-auth-rate-limit-max-keys}") long maxKeys,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.emailLimit = new Limit(emailBurst, emailPerMinute, maxKeys);
+        this.ipLimit = new Limit(ipBurst, ipPerMinute, maxKeys);
+        this.rejected = Counter.builder("auth.rate-limit.rejected")
+                .description("login attempts refused by the rate limiter")
+                .register(meterRegistry);
+    }
+
+    public void check(String email, String clientIp) {
+        if (!enabled) {
+            return;
+        }
+        boolean allowed = (clientIp == null || ipLimit.tryAcquire(clientIp))
+                && (email == null || emailLimit.tryAcquire(email.toLowerCase(Locale.ROOT)));
+        if (!allowed) {
+            rejected.increment();
+            throw new ApiException(HttpStatus.TOO_MANY_REQUESTS, "Too many login attempts, please try again later");
+        }
+    }
+
+    private static final class Limit {
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final Cache<String, AtomicLong> buckets;
+
+        Limit(int burst, int perMinute, long maxKeys) {
+            this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(perMinute, 1);
+            this.burstNanos = intervalNanos * Math.max(burst, 1);
+            //a key idle longer than a full refill is indistinguishable from a new one, drop it
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maxKeys)
+                    .expireAfterAccess(Duration.ofNanos(burstNanos))
+                    .build();
+        }
+
+        /*
+         * generic cell rate algorithm: one long per key holds the time at which the bucket is full again.
+         * a request is allowed while that time is less than one burst ahead of now. updated with a cas loop,
+         * no lock and no allocation per attempt.
+         */
+        boolean tryAcquire(String key) {
+            AtomicLong fullAt = buckets.get(key, k -> new AtomicLong(Long.MIN_VALUE));
+            long now = System.nanoTime();
+            while (true) {
+                long current = fullAt.get();
+                long base = current == Long.MIN_VALUE || current - now < 0 ? now : current;
+                long next = base + intervalNanos;
+                if (next - now > burstNanos) {
+                    return false;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
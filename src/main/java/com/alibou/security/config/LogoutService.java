@@ -1,6 +1,7 @@
 package com.alibou.security.config;
 
 import com.alibou.security.repository.TokenRepository;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
@@ -15,6 +16,10 @@ import java.io.IOException;
 public class LogoutService implements LogoutHandler {
 
     private final TokenRepository tokenRepository;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final TokenWriteBehindQueue tokenWriteBehindQueue;
+    private final JwtService jwtService;
+    private final UserVersionRegistry userVersionRegistry;
 
     @Override
     public void logout(HttpServletRequest request, HttpServletResponse response, Authentication authentication) {
@@ -28,7 +33,16 @@ public class LogoutService implements LogoutHandler {
         }
 
         jwt = authHeader.substring(7);
-        var storedToken = tokenRepository.findByToken(jwt).orElse(null);
+        String tokenHash = TokenHasher.hash(jwt);
+        //a token that is not written yet is revoked in the queue, it goes to the table already revoked
+        if (tokenWriteBehindQueue.revokePending(tokenHash)) {
+            endSession(jwt);
+            sendLogoutSuccess(response);
+            return;
+        }
+        //read on the primary: the token may be younger than the replica's lag, and the revoke below writes anyway
+        var storedToken = ReplicaRoutingDataSource.onPrimary(() -> tokenRepository.findStateByTokenHash(tokenHash))
+                .orElse(null);
 
         // Check if the token is null or already expired/revoked
         if (storedToken == null) {
@@ -36,16 +50,34 @@ public class LogoutService implements LogoutHandler {
             return;
         }
 
-        if (storedToken.isExpired() || storedToken.isRevoked()) {
+        // Mark the token as expired and revoked, one update statement instead of loading and saving the entity
+        // 0 rows: already revoked, possibly by a concurrent logout
+        if (!storedToken.isActive() || tokenRepository.revokeByTokenHash(tokenHash) == 0) {
             sendErrorResponse(response, HttpServletResponse.SC_BAD_REQUEST, "Token has already been logged out or is invalid");
             return;
         }
+        tokenRevocationRegistry.revoke(storedToken.tokenHash(), storedToken.expiresAt());
+        endSession(jwt);
+        sendLogoutSuccess(response);
+    }
 
-        // Mark the token as expired and revoked
-        storedToken.setExpired(true);
-        storedToken.setRevoked(true);
-        tokenRepository.save(storedToken);
+    //in stateless mode the filter only looks at the version, so logging out moves the user to a new one
+    private void endSession(String jwt) {
+        if (!jwtService.isStatelessRevocation()) {
+            return;
+        }
+        try {
+            VerifiedToken claims = jwtService.verify(jwt);
+            Number userId = claims.claim(JwtService.CLAIM_USER_ID, Number.class);
+            if (userId != null) {
+                userVersionRegistry.bump(userId.intValue(), claims.subject());
+            }
+        } catch (JwtException | IllegalArgumentException e) {
+            //an invalid token has no session to end
+        }
+    }
 
+    private void sendLogoutSuccess(HttpServletResponse response) {
         // Set response status and content type
         try {
             response.setStatus(HttpServletResponse.SC_OK);
@@ -0,0 +1,107 @@
+package com.alibou.security.config;
+
+import com.alibou.security.dto.AuthenticatedUser;
+import com.alibou.security.enums.Permission;
+import com.alibou.security.enums.Role;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.function.Supplier;
+
+/*
+ * hasAnyRole / hasAnyAuthority as a bit test.
+ * roles and permissions are enums, so each one is a bit (Role.mask(), Permission.mask()) and
+ * "has any of" becomes (granted & required) != 0 instead of walking the authority list comparing strings.
+ * when both a role mask and a permission mask are set the caller needs one of the roles AND one of the permissions.
+ * generic over the secured object so the same check works for url rules and for method security.
+ */
+public final class PermissionAuthorizationManager<T> implements AuthorizationManager<T> {
+
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    private final int roleMask;
+    private final int permissionMask;
+
+    private PermissionAuthorizationManager(int roleMask, int permissionMask) {
+        this.roleMask = roleMask;
+        this.permissionMask = permissionMask;
+    }
+
+    public static <T> PermissionAuthorizationManager<T> hasAnyRole(Role... roles) {
+        return new PermissionAuthorizationManager<>(Role.maskOf(roles), 0);
+    }
+
+    public static <T> PermissionAuthorizationManager<T> hasAnyPermission(Permission... permissions) {
+        return new PermissionAuthorizationManager<>(0, Permission.maskOf(permissions));
+    }
+
+    public PermissionAuthorizationManager<T> andAnyPermission(Permission... permissions) {
+        return new PermissionAuthorizationManager<>(roleMask, permissionMask | Permission.maskOf(permissions));
+    }
+
+    public PermissionAuthorizationManager<T> andAnyRole(Role... roles) {
+        return new PermissionAuthorizationManager<>(roleMask | Role.maskOf(roles), permissionMask);
+    }
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, T object) {
+        return new AuthorizationDecision(isGranted(authentication.get()));
+    }
+
+    public boolean isGranted(Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return false;
+        }
+        return isGranted(roleMaskOf(authentication), permissionMaskOf(authentication));
+    }
+
+    public boolean isGranted(int grantedRoles, int grantedPermissions) {
+        return (roleMask == 0 || (grantedRoles & roleMask) != 0)
+                && (permissionMask == 0 || (grantedPermissions & permissionMask) != 0);
+    }
+
+    //an AuthenticatedUser principal already knows its role, the masks are precomputed on the enum
+    public static int roleMaskOf(Authentication authentication) {
+        if (authentication.getPrincipal() instanceof AuthenticatedUser user && user.role() != null) {
+            return user.role().mask();
+        }
+        int mask = 0;
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            String name = authority.getAuthority();
+            if (name != null && name.startsWith(ROLE_PREFIX)) {
+                Role role = roleOf(name.substring(ROLE_PREFIX.length()));
+                if (role != null) {
+                    mask |= role.mask();
+                }
+            }
+        }
+        return mask;
+    }
+
+    public static int permissionMaskOf(Authentication authentication) {
+        if (authentication.getPrincipal() instanceof AuthenticatedUser user && user.role() != null) {
+            return user.role().getPermissionMask();
+        }
+        int mask = 0;
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            Permission permission = Permission.fromAuthority(authority.getAuthority());
+            if (permission != null) {
+                mask |= permission.mask();
+            }
+        }
+        return mask;
+    }
+
+    private static Role roleOf(String name) {
+        for (Role role : Role.values()) {
+            if (role.name().equals(name)) {
+                return role;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,61 @@
+package com.alibou.security.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/*
+ * primary + read replica (app-datasource-replica-enabled).
+ * the primary pool is the usual spring.datasource.* one, the replica pool gets its own url and credentials.
+ * the DataSource everything else uses routes between the two, see ReplicaRoutingDataSource.
+ * without the property spring boot builds its single pool as before.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app-datasource-replica-enabled", havingValue = "true")
+public class ReplicaDataSourceConfiguration {
+
+    @Bean
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+        return primary;
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${app-datasource-replica-url}") String url,
+                                              @Value("${app-datasource-replica-username}") String username,
+                                              @Value("${app-datasource-replica-password}") String password,
+                                              @Value("${app-datasource-replica-pool-size}") int poolSize) {
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        replica.setPoolName("replica");
+        replica.setMaximumPoolSize(poolSize);
+        //a write that ends up here by mistake fails instead of diverging from the primary
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replica);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -0,0 +1,71 @@
+package com.alibou.security.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/*
+ * replica lag (app-datasource-replica-*).
+ * a row written on the primary shows up on the replica a little later, so right after a registration or a login
+ * the replica may not know the user or the new token yet. two fallbacks:
+ * - a user who wrote in the last max-lag-ms reads from the primary (login, then the first request with the token)
+ * - a lookup the replica answers with nothing is asked again on the primary (a write made on another instance)
+ * without a replica both pass straight through.
+ */
+@Component
+public class ReplicaReadFallback {
+
+    private static final int MAX_TRACKED_USERS = 100_000;
+
+    private final boolean enabled;
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReplicaReadFallback(@Value("${app-datasource-replica-enabled}") boolean enabled,
+                               @Value("${app-datasource-replica-max-lag-ms}") long maxLagMillis) {
+        this.enabled = enabled;
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(MAX_TRACKED_USERS)
+                .expireAfterWrite(Duration.ofMillis(maxLagMillis))
+                .build();
+    }
+
+    //called after the user's write is committed, or about to be
+    public void written(String email) {
+        if (enabled && email != null) {
+            recentWriters.put(email, Boolean.TRUE);
+        }
+    }
+
+    public boolean isRecentWriter(String email) {
+        return enabled && email != null && recentWriters.getIfPresent(email) != null;
+    }
+
+    //all reads of the block go to the primary when the user wrote recently
+    public <T> T read(String email, Supplier<T> reads) {
+        return isRecentWriter(email) ? ReplicaRoutingDataSource.onPrimary(reads) : reads.get();
+    }
+
+    public <T> Optional<T> orPrimary(Supplier<Optional<T>> lookup) {
+        return find(null, lookup, lookup);
+    }
+
+    /*
+     * lookup on the replica, primaryLookup on the primary when the user wrote recently or the replica found nothing.
+     * primaryLookup should skip the query cache: the replica's miss may have been cached a moment ago.
+     */
+    public <T> Optional<T> find(String email, Supplier<Optional<T>> lookup, Supplier<Optional<T>> primaryLookup) {
+        if (!enabled) {
+            return lookup.get();
+        }
+        if (ReplicaRoutingDataSource.isPrimaryForced() || isRecentWriter(email)) {
+            return ReplicaRoutingDataSource.onPrimary(primaryLookup);
+        }
+        Optional<T> result = lookup.get();
+        return result.isPresent() ? result : ReplicaRoutingDataSource.onPrimary(primaryLookup);
+    }
+}
@@ -0,0 +1,52 @@
+package com.alibou.security.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/*
+ * read-only transactions go to the replica, everything else (writes, reads inside a write transaction,
+ * reads without a transaction) to the primary.
+ * the transaction manager marks the transaction read-only after it asked for a connection, so this sits behind a
+ * LazyConnectionDataSourceProxy which only picks the target when the first statement runs.
+ * onPrimary() sends the reads of one block to the primary, used when the replica may not have a recent write yet.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target { PRIMARY, REPLICA }
+
+    private static final ThreadLocal<int[]> primaryForced = ThreadLocal.withInitial(() -> new int[1]);
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !isPrimaryForced()
+                ? Target.REPLICA
+                : Target.PRIMARY;
+    }
+
+    //a counter rather than a flag so nested blocks do not end the outer one
+    public static <T> T onPrimary(Supplier<T> reads) {
+        int[] depth = primaryForced.get();
+        depth[0]++;
+        try {
+            return reads.get();
+        } finally {
+            if (--depth[0] == 0) {
+                primaryForced.remove();
+            }
+        }
+    }
+
+    public static boolean isPrimaryForced() {
+        return primaryForced.get()[0] > 0;
+    }
+}
@@ -0,0 +1,123 @@
+package com.alibou.security.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.util.Arrays;
+
+/*
+ * set of ant style paths compiled into a trie of path segments.
+ * supports literal segments, "*" for exactly one segment and a trailing "**" for the rest of the path
+ * (including nothing, so "/api/v1/auth/**" also matches "/api/v1/auth").
+ * a lookup walks the request path once instead of trying each pattern in turn, and does not allocate:
+ * children are kept in plain arrays and compared against the path in place.
+ */
+public final class RouteTable implements RequestMatcher {
+
+    private static final String ANY_SEGMENT = "*";
+    private static final String ANY_PATH = "**";
+
+    private final Node root = new Node();
+
+    private RouteTable() {
+    }
+
+    public static RouteTable of(String... patterns) {
+        RouteTable table = new RouteTable();
+        for (String pattern : patterns) {
+            table.add(pattern);
+        }
+        return table;
+    }
+
+    private void add(String pattern) {
+        String[] segments = (pattern.startsWith("/") ? pattern.substring(1) : pattern).split("/", -1);
+        Node node = root;
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (ANY_PATH.equals(segment)) {
+                if (i != segments.length - 1) {
+                    throw new IllegalArgumentException("** is only supported at the end: " + pattern);
+                }
+                node.anyPath = true;
+                return;
+            }
+            if (segment.contains(ANY_SEGMENT) && !ANY_SEGMENT.equals(segment)) {
+                throw new IllegalArgumentException("partial wildcards are not supported: " + pattern);
+            }
+            node = ANY_SEGMENT.equals(segment)
+                    ? (node.anySegment != null ? node.anySegment : (node.anySegment = new Node()))
+                    : node.child(segment);
+        }
+        node.terminal = true;
+    }
+
+    @Override
+    public boolean matches(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        int contextLength = request.getContextPath().length();
+        return matches(uri, contextLength);
+    }
+
+    public boolean matches(String path) {
+        return matches(path, 0);
+    }
+
+    private boolean matches(String path, int start) {
+        if (start < path.length() && path.charAt(start) == '/') {
+            start++;
+        }
+        return matches(root, path, start);
+    }
+
+    private static boolean matches(Node node, String path, int start) {
+        if (node.anyPath) {
+            return true;
+        }
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = path.length();
+        }
+        boolean last = end == path.length();
+        Node literal = node.find(path, start, end);
+        if (literal != null && (last ? literal.terminal || literal.anyPath : matches(literal, path, end + 1))) {
+            return true;
+        }
+        Node wildcard = node.anySegment;
+        return wildcard != null && end > start
+                && (last ? wildcard.terminal || wildcard.anyPath : matches(wildcard, path, end + 1));
+    }
+
+    private static final class Node {
+        private String[] segments = new String[0];
+        private Node[] children = new Node[0];
+        private Node anySegment;
+        private boolean anyPath;
+        private boolean terminal;
+
+        //only while the table is built
+        private Node child(String segment) {
+            for (int i = 0; i < segments.length; i++) {
+                if (segments[i].equals(segment)) {
+                    return children[i];
+                }
+            }
+            segments = Arrays.copyOf(segments, segments.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            segments[segments.length - 1] = segment;
+            return children[children.length - 1] = new Node();
+        }
+
+        //compare in place so the path is never split into substrings
+        private Node find(String path, int start, int end) {
+            int length = end - start;
+            for (int i = 0; i < segments.length; i++) {
+                String segment = segments[i];
+                if (segment.length() == length && path.regionMatches(start, segment, 0, length)) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -1,10 +1,20 @@
 package com.alibou.security.config;
 
+import com.alibou.security.encryption.PayloadEncryptionFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.aop.Advisor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
 
 import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authorization.method.AuthorizationManagerAfterMethodInterceptor;
+import org.springframework.security.authorization.method.AuthorizationManagerBeforeMethodInterceptor;
+import org.springframework.security.authorization.method.PostFilterAuthorizationMethodInterceptor;
+import org.springframework.security.authorization.method.PreFilterAuthorizationMethodInterceptor;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -12,8 +22,15 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.authentication.logout.LogoutHandler;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.CorsConfigurationSource;
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+
+import java.util.List;
 
 import static com.alibou.security.enums.Permission.ADMIN_CREATE;
 import static com.alibou.security.enums.Permission.ADMIN_DELETE;
@@ -33,7 +50,9 @@ import static org.springframework.http.HttpMethod.PUT;
 @Configuration
 @EnableWebSecurity
 @RequiredArgsConstructor
-@EnableMethodSecurity
+//prePost is registered below: @PreAuthorize with CompiledPreAuthorizeManager, @PostAuthorize / @PreFilter /
+//@PostFilter with spring's own interceptors, so turning prePostEnabled off does not silently drop any of them
+@EnableMethodSecurity(prePostEnabled = false)
 public class SecurityConfiguration {
 
     private static final String[] WHITE_LIST_URL = {"/api/v1/auth/**",
@@ -48,27 +67,36 @@ public class SecurityConfiguration {
             "/webjars/**",
             "/swagger-ui.html",
     "/api/v1/auth/authenticate"};
+    //WHITE_LIST_URL as one trie lookup, shared with JwtAuthenticationFilter
+    static final RouteTable PUBLIC_ROUTES = RouteTable.of(WHITE_LIST_URL);
 
     private final JwtAuthenticationFilter jwtAuthFilter;
     private final AuthenticationProvider authenticationProvider;
     private final LogoutHandler logoutHandler;
 
     private static final String MANAGEMENT_URL="/api/v1/management/**";
+    private static final PermissionAuthorizationManager<RequestAuthorizationContext> MANAGEMENT =
+            PermissionAuthorizationManager.hasAnyRole(ADMIN, MANAGER);
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception{
         http.cors(Customizer.withDefaults())
                 .csrf(csrf->csrf.disable())
                 .authorizeHttpRequests((authorize)->
-                    authorize.requestMatchers(WHITE_LIST_URL)
+                    authorize.requestMatchers(PUBLIC_ROUTES)
+                            .permitAll()
+                            .requestMatchers(CorsUtils::isPreFlightRequest)
+                            .permitAll()
+                            //the request was authorized before it went async, the async dispatch only writes the result
+                            .dispatcherTypeMatchers(DispatcherType.ASYNC)
                             .permitAll()
 
-                            .requestMatchers(MANAGEMENT_URL).hasAnyRole(ADMIN.name(), MANAGER.name())
-
-                            .requestMatchers(GET, MANAGEMENT_URL).hasAnyAuthority(ADMIN_READ.name(), MANAGER_READ.name())
-                            .requestMatchers(POST, MANAGEMENT_URL).hasAnyAuthority(ADMIN_CREATE.name(), MANAGER_CREATE.name())
-                            .requestMatchers(PUT, MANAGEMENT_URL).hasAnyAuthority(ADMIN_UPDATE.name(), MANAGER_UPDATE.name())
-                            .requestMatchers(DELETE, MANAGEMENT_URL).hasAnyAuthority(ADMIN_DELETE.name(), MANAGER_DELETE.name())
+                            //role and permission checked together as bit tests, see PermissionAuthorizationManager
+                            .requestMatchers(GET, MANAGEMENT_URL).access(MANAGEMENT.andAnyPermission(ADMIN_READ, MANAGER_READ))
+                            .requestMatchers(POST, MANAGEMENT_URL).access(MANAGEMENT.andAnyPermission(ADMIN_CREATE, MANAGER_CREATE))
+                            .requestMatchers(PUT, MANAGEMENT_URL).access(MANAGEMENT.andAnyPermission(ADMIN_UPDATE, MANAGER_UPDATE))
+                            .requestMatchers(DELETE, MANAGEMENT_URL).access(MANAGEMENT.andAnyPermission(ADMIN_DELETE, MANAGER_DELETE))
+                            .requestMatchers(MANAGEMENT_URL).access(MANAGEMENT)
 
                             /*.requestMatchers("/api/v1/admin/**").hasRole(ADMIN.name())
                             .requestMatchers(GET, "/api/v1/admin/**").hasAuthority(ADMIN_READ.name())
@@ -92,4 +120,54 @@ public class SecurityConfiguration {
 
         return http.build();
     }
+
+    //preflight answers may be cached by the browser for max-age seconds instead of repeating the OPTIONS call
+    //X-Payload-Encryption is allowed on requests and exposed on responses, cross origin clients need both to use it
+    @Bean
+    public CorsConfigurationSource corsConfigurationSource(
+            @Value("${app-cors-allowed-origins}") List<String> allowedOrigins,
+            @Value("${app-cors-max-age-seconds}") long maxAgeSeconds) {
+        CorsConfiguration configuration = new CorsConfiguration();
+        configuration.setAllowedOriginPatterns(allowedOrigins);
+        configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
+        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", PayloadEncryptionFilter.HEADER));
+        configuration.setExposedHeaders(List.of(PayloadEncryptionFilter.HEADER));
+        configuration.setMaxAge(maxAgeSeconds);
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/**", configuration);
+        return source;
+    }
+
+    //static so the method security infrastructure does not pull this configuration (and its filters) in early
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static CompiledPreAuthorizeManager compiledPreAuthorizeManager(
+            @Value("${app-method-security-compiled}") boolean compiled) {
+        return new CompiledPreAuthorizeManager(compiled);
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor preAuthorizeAdvisor(CompiledPreAuthorizeManager compiledPreAuthorizeManager) {
+        return AuthorizationManagerBeforeMethodInterceptor.preAuthorize(compiledPreAuthorizeManager);
+    }
+
+    //the other three prePost annotations as prePostEnabled = true would register them
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor postAuthorizeAdvisor() {
+        return AuthorizationManagerAfterMethodInterceptor.postAuthorize();
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor preFilterAdvisor() {
+        return new PreFilterAuthorizationMethodInterceptor();
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor postFilterAdvisor() {
+        return new PostFilterAuthorizationMethodInterceptor();
+    }
 }
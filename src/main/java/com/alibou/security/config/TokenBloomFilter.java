@@ -0,0 +1,55 @@
+package com.alibou.security.config;
+
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//fixed size bloom filter over token hashes, the hex sha-256 is already uniform so its bits are used as the hash functions
+final class TokenBloomFilter {
+
+    private static final int HASH_FUNCTIONS = 5;
+    private static final int BITS_PER_ENTRY = 10;
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int capacity;
+
+    TokenBloomFilter(int capacity) {
+        this.capacity = Math.max(capacity, 1024);
+        long bits = (long) this.capacity * BITS_PER_ENTRY;
+        this.words = new AtomicLongArray((int) ((bits + 63) >>> 6));
+        this.bitCount = (long) words.length() << 6;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    void put(String tokenHash) {
+        long h1 = HexFormat.fromHexDigitsToLong(tokenHash, 0, 16);
+        long h2 = HexFormat.fromHexDigitsToLong(tokenHash, 16, 32);
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word;
+            do {
+                word = words.get(index);
+                if ((word & mask) != 0) {
+                    break;
+                }
+            } while (!words.compareAndSet(index, word, word | mask));
+        }
+    }
+
+    boolean mightContain(String tokenHash) {
+        long h1 = HexFormat.fromHexDigitsToLong(tokenHash, 0, 16);
+        long h2 = HexFormat.fromHexDigitsToLong(tokenHash, 16, 32);
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
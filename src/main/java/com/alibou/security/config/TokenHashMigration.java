@@ -0,0 +1,86 @@
+package com.alibou.security.config;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * one time backfill for databases created before tokens were stored by hash.
+ * ddl-auto=update adds the token_hash column (null for old rows) but keeps the old token column,
+ * so every row that still has a raw jwt gets its hash written and the raw value cleared.
+ * once this has run everywhere the token column can be dropped by hand.
+ */
+@Component
+@RequiredArgsConstructor
+public class TokenHashMigration implements ApplicationRunner {
+
+    static Logger logger = LoggerFactory.getLogger(TokenHashMigration.class);
+    private static final int BATCH_SIZE = 500;
+    private static final String UPDATE_SQL = "update token set token_hash = ?, token = null where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!hasLegacyTokenColumn()) {
+            return;
+        }
+        int migrated = 0;
+        List<Map<String, Object>> rows;
+        do {
+            rows = jdbcTemplate.queryForList(
+                    "select id, token from token where token_hash is null and token is not null limit " + BATCH_SIZE);
+            List<Object[]> updates = rows.stream()
+                    .map(row -> new Object[]{TokenHasher.hash((String) row.get("token")), row.get("id")})
+                    .toList();
+            if (!updates.isEmpty()) {
+                try {
+                    jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+                } catch (DataIntegrityViolationException e) {
+                    //the same jwt was stored twice (issued in the same second), keep the first row only
+                    updates.forEach(this::migrateRow);
+                }
+                migrated += updates.size();
+            }
+        } while (rows.size() == BATCH_SIZE);
+        if (migrated > 0) {
+            logger.info("migrated {} tokens to hashed lookup", migrated);
+        }
+    }
+
+    private void migrateRow(Object[] update) {
+        try {
+            jdbcTemplate.update(UPDATE_SQL, update);
+        } catch (DataIntegrityViolationException duplicate) {
+            jdbcTemplate.update("delete from token where id = ?", update[1]);
+        }
+    }
+
+    private boolean hasLegacyTokenColumn() {
+        Boolean found = jdbcTemplate.execute((Connection connection) -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String table : new String[]{"token", "TOKEN"}) {
+                try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, table, null)) {
+                    while (columns.next()) {
+                        if ("token".equalsIgnoreCase(columns.getString("COLUMN_NAME"))) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        });
+        return Boolean.TRUE.equals(found);
+    }
+}
@@ -0,0 +1,29 @@
+package com.alibou.security.config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+//fixed length sha-256 fingerprint of a raw jwt, used wherever a token has to be looked up by value
+public final class TokenHasher {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    private TokenHasher() {
+    }
+
+    public static String hash(String token) {
+        MessageDigest digest = SHA_256.get();
+        digest.reset();
+        return HEX.formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+}
@@ -0,0 +1,88 @@
+package com.alibou.security.config;
+
+import com.alibou.security.dto.TokenFingerprint;
+import com.alibou.security.repository.TokenRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * in-memory deny list of revoked tokens, keyed by token hash.
+ * loaded from the token table at startup and fed by logout, login and refresh, so the filter can answer
+ * "is this token revoked" without a query. a bloom filter in front of the map answers the common
+ * "never revoked" case from a few bit reads. entries are dropped once the token expires by itself,
+ * because an expired token is already refused by the signature check.
+ * the table is re-read periodically so revocations made by other instances are picked up.
+ */
+@Component
+public class TokenRevocationRegistry {
+
+    static Logger logger = LoggerFactory.getLogger(TokenRevocationRegistry.class);
+
+    private final TokenRepository tokenRepository;
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile TokenBloomFilter bloomFilter = new TokenBloomFilter(0);
+
+    public TokenRevocationRegistry(TokenRepository tokenRepository, MeterRegistry meterRegistry) {
+        this.tokenRepository = tokenRepository;
+        Gauge.builder("jwt.revoked-tokens", revoked, Map::size)
+                .description("revoked tokens that have not expired yet")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void load() {
+        reload();
+        logger.info("loaded {} revoked tokens", revoked.size());
+    }
+
+    public boolean isRevoked(String tokenHash) {
+        return bloomFilter.mightContain(tokenHash) && revoked.containsKey(tokenHash);
+    }
+
+    public void revoke(String tokenHash, Instant expiresAt) {
+        if (expiresAt == null || expiresAt.isBefore(Instant.now())) {
+            return;
+        }
+        synchronized (this) {
+            revoked.put(tokenHash, expiresAt.toEpochMilli());
+            if (revoked.size() > bloomFilter.capacity()) {
+                rebuildBloomFilter();
+            } else {
+                bloomFilter.put(tokenHash);
+            }
+        }
+    }
+
+    public void revokeAll(Collection<TokenFingerprint> tokens) {
+        tokens.forEach(token -> revoke(token.tokenHash(), token.expiresAt()));
+    }
+
+    @Scheduled(fixedDelayString = "${app-token-revocation-reload-ms}", initialDelayString = "${app-token-revocation-reload-ms}")
+    public void reload() {
+        revokeAll(tokenRepository.findAllRevokedNotExpired(Instant.now()));
+        prune();
+    }
+
+    //forget tokens past their own expiry and rebuild the bloom filter, which cannot delete
+    public synchronized void prune() {
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(expiresAt -> expiresAt < now);
+        rebuildBloomFilter();
+    }
+
+    private void rebuildBloomFilter() {
+        TokenBloomFilter rebuilt = new TokenBloomFilter(revoked.size() * 2);
+        revoked.keySet().forEach(rebuilt::put);
+        bloomFilter = rebuilt;
+    }
+}
@@ -0,0 +1,68 @@
+package com.alibou.security.config;
+
+import com.alibou.security.repository.TokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/*
+ * deletes dead token rows in the background instead of inside the login request.
+ * each batch is its own short statement (DELETE ... LIMIT) so locks are held briefly
+ * and logins never queue behind a table wide delete.
+ */
+@Component
+public class TokenSweeper {
+
+    static Logger logger = LoggerFactory.getLogger(TokenSweeper.class);
+
+    private final TokenRepository tokenRepository;
+    private final int batchSize;
+    private final Counter reclaimed;
+    private final Timer sweepTimer;
+
+    public TokenSweeper(TokenRepository tokenRepository,
+                        @Value("${app-token-sweeper-batch-size}") int batchSize,
+                        MeterRegistry meterRegistry) {
+        this.tokenRepository = tokenRepository;
+        this.batchSize = batchSize;
+        this.reclaimed = Counter.builder("tokens.sweeper.reclaimed")
+                .description("token rows deleted by the sweeper")
+                .register(meterRegistry);
+        this.sweepTimer = Timer.builder("tokens.sweeper.duration")
+                .description("time spent in one sweep")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app-token-sweeper-interval-ms}", initialDelayString = "${app-token-sweeper-interval-ms}")
+    public void sweep() {
+        long start = System.nanoTime();
+        Instant now = Instant.now();
+        int deleted = deleteInBatches(() -> tokenRepository.deleteExpiredTokens(now, batchSize))
+                + deleteInBatches(() -> tokenRepository.deleteRevokedLegacyTokens(batchSize));
+        long elapsed = System.nanoTime() - start;
+        sweepTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        reclaimed.increment(deleted);
+        if (deleted > 0) {
+            logger.info("token sweep reclaimed {} rows in {} ms", deleted, elapsed / 1_000_000);
+        }
+    }
+
+    private int deleteInBatches(IntSupplier batch) {
+        int total = 0;
+        int deleted;
+        do {
+            deleted = batch.getAsInt();
+            total += deleted;
+        } while (deleted == batchSize);
+        return total;
+    }
+}
@@ -0,0 +1,255 @@
+package com.alibou.security.config;
+
+import com.alibou.security.enums.TokenType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * write-behind for issued tokens (app-token-write-behind-enabled).
+ * instead of one INSERT per login the token is parked here and written with the others in one jdbc batch,
+ * when batch-size tokens are waiting or every flush-ms, whichever comes first.
+ * the filter accepts a new access token from its signature plus the revocation registry, so a token that is
+ * not in the table yet already works.
+ *
+ * revocation of a parked token: the entry stays in the map until its row is committed, so
+ * - still in the map: it is flagged revoked (and put in the registry); a flush that has not read the flag inserts
+ *   it revoked, a flush that already inserted it active fixes the row right after its commit
+ * - no longer in the map: the row is committed, so the caller's UPDATE on the table catches it
+ * callers therefore revoke pending tokens first and update the table second.
+ *
+ * the map is bounded: when it is full the token is written directly. on shutdown everything left is written.
+ *
+ * a failed batch is retried row by row, so one bad row (duplicate hash, user deleted meanwhile) does not hold back
+ * the rest. a row that keeps failing is dropped after max-attempts flushes and counted in tokens.write-behind.dropped;
+ * its jwt still works from its signature, it just has no row for logout to find.
+ */
+@Component
+public class TokenWriteBehindQueue {
+
+    static Logger logger = LoggerFactory.getLogger(TokenWriteBehindQueue.class);
+
+    private static final String INSERT_SQL = "insert into token (token_hash, token_type, expired, revoked, expires_at, user_id) values (?, ?, ?, ?, ?, ?)";
+    private static final String REVOKE_SQL = "update token set revoked = true, expired = true where token_hash = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int capacity;
+    private final int maxAttempts;
+    private final Map<String, PendingToken> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher;
+    private final Counter flushed;
+    private final Counter dropped;
+    private final Timer flushTimer;
+
+    public TokenWriteBehindQueue(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 TokenRevocationRegistry tokenRevocationRegistry,
+                                 @Value("${app-token-write-behind-enabled}") boolean enabled,
+                                 @Value("${app-token-write-behind-batch-size}") int batchSize,
+                                 @Value("${app-token-write-behind-capacity}") int capacity,
+                                 @Value("${app-token-write-behind-flush-ms}") long flushMs,
+                                 @Value("${app-token-write-behind-max-attempts}") int maxAttempts,
+                                 MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.tokenRevocationRegistry = tokenRevocationRegistry;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.capacity = Math.max(capacity, batchSize);
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.flushed = Counter.builder("tokens.write-behind.flushed")
+                .description("token rows written by the write-behind queue")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("tokens.write-behind.dropped")
+                .description("token rows given up on after max-attempts failed writes")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("tokens.write-behind.flush")
+                .description("time spent writing one batch of tokens")
+                .register(meterRegistry);
+        Gauge.builder("tokens.write-behind.pending", pending, Map::size)
+                .description("issued tokens not written to the table yet")
+                .register(meterRegistry);
+        if (enabled) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "token-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushMs, flushMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    //false when the queue is full, the caller then writes the row itself
+    //(it cannot wait for the flusher: it may hold the user row lock the flusher's inserts need)
+    public boolean offer(Integer userId, String tokenHash, Instant expiresAt) {
+        if (!enabled || pending.size() >= capacity) {
+            return false;
+        }
+        pending.put(tokenHash, new PendingToken(userId, tokenHash, expiresAt));
+        if (pending.size() >= batchSize && !flushLock.isLocked()) {
+            flusher.execute(this::flushQuietly);
+        }
+        return true;
+    }
+
+    //revokes the user's tokens that are not in the table yet, see the class comment for the ordering
+    public void revokePending(Integer userId) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        for (PendingToken token : pending.values()) {
+            if (token.userId.equals(userId)) {
+                revokePending(token.tokenHash);
+            }
+        }
+    }
+
+    //true when the token was still waiting to be written
+    public boolean revokePending(String tokenHash) {
+        PendingToken token = pending.computeIfPresent(tokenHash, (hash, entry) -> {
+            entry.revoked = true;
+            return entry;
+        });
+        if (token == null) {
+            return false;
+        }
+        tokenRevocationRegistry.revoke(tokenHash, token.expiresAt);
+        return true;
+    }
+
+    //one pass over what is waiting now, tokens parked meanwhile and rows that failed wait for the next tick
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<PendingToken> waiting = new ArrayList<>(pending.values());
+            for (int from = 0; from < waiting.size(); from += batchSize) {
+                writeBatch(waiting.subList(from, Math.min(from + batchSize, waiting.size())));
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void writeBatch(List<PendingToken> batch) {
+        long start = System.nanoTime();
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (PendingToken token : batch) {
+            rows.add(row(token));
+        }
+        try {
+            //one transaction, so a failing row leaves none of the batch behind
+            transaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, rows));
+            committed(batch, rows);
+            flushed.increment(batch.size());
+        } catch (DataAccessException e) {
+            //the whole batch was rolled back, find the rows that fail on their own
+            for (int i = 0; i < batch.size(); i++) {
+                writeRow(batch.get(i), rows.get(i));
+            }
+        }
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void writeRow(PendingToken token, Object[] row) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, row);
+            committed(List.of(token), List.<Object[]>of(row));
+            flushed.increment();
+        } catch (DataAccessException e) {
+            if (++token.attempts < maxAttempts) {
+                logger.warn("token write-behind row failed ({} of {} attempts): {}", token.attempts, maxAttempts, e.getMessage());
+                return;
+            }
+            pending.remove(token.tokenHash);
+            dropped.increment();
+            logger.error("token write-behind row dropped after {} attempts: {}", token.attempts, e.getMessage());
+        }
+    }
+
+    private static Object[] row(PendingToken token) {
+        boolean revoked = token.revoked;
+        return new Object[]{token.tokenHash, TokenType.BEARER.name(), revoked, revoked,
+                Timestamp.from(token.expiresAt), token.userId};
+    }
+
+    //committed, drop the entries; any that were revoked meanwhile may have gone in as active
+    private void committed(List<PendingToken> batch, List<Object[]> rows) {
+        List<Object[]> lateRevocations = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            PendingToken token = batch.get(i);
+            boolean insertedRevoked = (Boolean) rows.get(i)[2];
+            pending.compute(token.tokenHash, (hash, entry) -> {
+                if (entry != null && entry.revoked && !insertedRevoked) {
+                    lateRevocations.add(new Object[]{hash});
+                }
+                return null;
+            });
+        }
+        if (!lateRevocations.isEmpty()) {
+            jdbcTemplate.batchUpdate(REVOKE_SQL, lateRevocations);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            //entries stay in the map and are retried on the next tick
+            logger.warn("token write-behind flush failed, {} tokens pending: {}", pending.size(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+        logger.info("token write-behind queue drained");
+    }
+
+    private static final class PendingToken {
+        private final Integer userId;
+        private final String tokenHash;
+        private final Instant expiresAt;
+        private volatile boolean revoked;
+        //failed writes, only touched by the flush holding flushLock
+        private int attempts;
+
+        private PendingToken(Integer userId, String tokenHash, Instant expiresAt) {
+            this.userId = userId;
+            this.tokenHash = tokenHash;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
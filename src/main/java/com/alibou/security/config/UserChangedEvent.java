@@ -0,0 +1,6 @@
+package com.alibou.security.config;
+
+//published when a user's password, role or token version changes, cached copies of the user are dropped
+//email is the cache key, every publisher has it at hand
+public record UserChangedEvent(Integer userId, String email) {
+}
@@ -0,0 +1,158 @@
+package com.alibou.security.config;
+
+import com.alibou.security.dto.UserTokenVersion;
+import com.alibou.security.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/*
+ * current token version per user id.
+ * a token carrying a "ver" claim (authorities-in-token or stateless revocation mode) is only trusted while that
+ * claim equals this value, so bump() invalidates every token the user holds without touching the token table.
+ *
+ * ids come from an auto increment column, so the versions live in an int array indexed by user id
+ * (version + 1, 0 = not loaded yet) instead of a map of boxed integers. ids past MAX_DENSE_ID go to a map.
+ * whenever tokens carry a version (stateless revocation or authorities-in-token) every version is loaded at startup
+ * and re-read every app-jwt-version-reload-ms, so bumps made by other instances (a role change, a logout) arrive;
+ * otherwise a user's version is read on first use.
+ * versions only grow, so every write keeps the larger value and a slow reload cannot bring back an old one.
+ */
+@Component
+public class UserVersionRegistry {
+
+    static Logger logger = LoggerFactory.getLogger(UserVersionRegistry.class);
+
+    private static final int MAX_DENSE_ID = 1 << 22;
+
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean versionedTokens;
+    private volatile AtomicIntegerArray versions = new AtomicIntegerArray(1024);
+    private final Map<Integer, Integer> sparseVersions = new ConcurrentHashMap<>();
+
+    public UserVersionRegistry(UserRepository userRepository,
+                               ApplicationEventPublisher eventPublisher,
+                               @Value("${app-jwt-stateless-revocation}") boolean statelessRevocation,
+                               @Value("${app-jwt-authorities-in-token}") boolean authoritiesInToken) {
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.versionedTokens = statelessRevocation || authoritiesInToken;
+    }
+
+    @PostConstruct
+    void load() {
+        if (versionedTokens) {
+            reload();
+            logger.info("loaded token versions of {} users", count());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app-jwt-version-reload-ms}", initialDelayString = "${app-jwt-version-reload-ms}")
+    public void reload() {
+        if (!versionedTokens) {
+            return;
+        }
+        List<UserTokenVersion> all = userRepository.findAllTokenVersions();
+        all.forEach(version -> store(version.id(), version.tokenVersion()));
+    }
+
+    public boolean isCurrent(Integer userId, int tokenVersion) {
+        if (userId == null || userId < 0) {
+            return false;
+        }
+        int stored = stored(userId);
+        if (stored == 0) {
+            Integer loaded = userRepository.findTokenVersionById(userId).orElse(null);
+            if (loaded == null) {
+                return false;
+            }
+            stored = store(userId, loaded);
+        }
+        if (stored - 1 < tokenVersion) {
+            //the token is newer than the version known here: bumped on another instance, or read from a lagging replica
+            Integer latest = ReplicaRoutingDataSource.onPrimary(() -> userRepository.findTokenVersionById(userId)).orElse(null);
+            if (latest != null) {
+                stored = store(userId, latest);
+            }
+        }
+        return stored - 1 == tokenVersion;
+    }
+
+    //returns the new version, tokens issued from now on should carry it; email is the key of the cached copy
+    @Transactional
+    public int bump(Integer userId, String email) {
+        int version = userRepository.incrementTokenVersion(userId);
+        store(userId, version);
+        eventPublisher.publishEvent(new UserChangedEvent(userId, email));
+        return version;
+    }
+
+    private int stored(int userId) {
+        if (userId >= MAX_DENSE_ID) {
+            return sparseVersions.getOrDefault(userId, 0);
+        }
+        AtomicIntegerArray current = versions;
+        return userId < current.length() ? current.get(userId) : 0;
+    }
+
+    private int store(int userId, int version) {
+        int value = version + 1;
+        if (userId >= MAX_DENSE_ID) {
+            return sparseVersions.merge(userId, value, Math::max);
+        }
+        AtomicIntegerArray target = arrayFor(userId);
+        int stored = target.accumulateAndGet(userId, value, Math::max);
+        //the array may have been replaced by a bigger copy meanwhile, write again so the copy has it too
+        while (target != versions) {
+            target = versions;
+            stored = target.accumulateAndGet(userId, value, Math::max);
+        }
+        return stored;
+    }
+
+    private AtomicIntegerArray arrayFor(int userId) {
+        AtomicIntegerArray current = versions;
+        if (userId < current.length()) {
+            return current;
+        }
+        synchronized (this) {
+            current = versions;
+            if (userId >= current.length()) {
+                int length = Math.min(Math.max(userId + 1, current.length() * 2), MAX_DENSE_ID);
+                AtomicIntegerArray grown = new AtomicIntegerArray(length);
+                for (int i = 0; i < current.length(); i++) {
+                    grown.set(i, current.get(i));
+                }
+                versions = grown;
+                //values written to the old array during the copy are written again by store()
+                for (int i = 0; i < current.length(); i++) {
+                    grown.accumulateAndGet(i, current.get(i), Math::max);
+                }
+                current = grown;
+            }
+            return current;
+        }
+    }
+
+    private int count() {
+        AtomicIntegerArray current = versions;
+        int count = sparseVersions.size();
+        for (int i = 0; i < current.length(); i++) {
+            if (current.get(i) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
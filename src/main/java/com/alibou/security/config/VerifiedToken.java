@@ -0,0 +1,23 @@
+package com.alibou.security.config;
+
+import java.util.Date;
+import java.util.Map;
+
+//result of a single signature check in JwtService.verify
+//tokenHash is the sha-256 of the raw jwt (see TokenHasher)
+//everything the filter or refresh flow needs is read from here instead of parsing the jwt again
+public record VerifiedToken(String tokenHash,
+                            String subject,
+                            Date issuedAt,
+                            Date expiration,
+                            Map<String, Object> claims) {
+
+    public boolean isExpired() {
+        return expiration != null && expiration.getTime() < System.currentTimeMillis();
+    }
+
+    public <T> T claim(String name, Class<T> type) {
+        Object value = claims.get(name);
+        return type.isInstance(value) ? type.cast(value) : null;
+    }
+}
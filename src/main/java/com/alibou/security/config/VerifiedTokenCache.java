@@ -0,0 +1,78 @@
+package com.alibou.security.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * cache of tokens whose signature was already checked, keyed by the sha-256 of the raw jwt.
+ * an entry lives at most until the token's own exp, so an expired token is never served from here.
+ * it only replaces the hmac check: revocation is still looked up by the filter on every request.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final boolean enabled;
+    private final Cache<String, VerifiedToken> cache;
+
+    public VerifiedTokenCache(@Value("${app-jwt-claims-cache-enabled}") boolean enabled,
+                              @Value("${app-jwt-claims-cache-max-size}") long maxSize,
+                              MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpires())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verified-tokens");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public VerifiedToken get(String tokenHash) {
+        if (!enabled) {
+            return null;
+        }
+        VerifiedToken token = cache.getIfPresent(tokenHash);
+        //the entry may still be in the map for a few ms after its exp, never hand it out
+        return token == null || token.isExpired() ? null : token;
+    }
+
+    public void put(VerifiedToken token) {
+        if (enabled && token.expiration() != null) {
+            cache.put(token.tokenHash(), token);
+        }
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private static final class UntilTokenExpires implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+            long millisLeft = value.expiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, millisLeft));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
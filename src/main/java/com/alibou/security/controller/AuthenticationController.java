@@ -1,5 +1,7 @@
 package com.alibou.security.controller;
 
+import com.alibou.security.config.LoginRateLimiter;
+import com.alibou.security.config.PasswordHashingExecutor;
 import com.alibou.security.dto.AuthenticationRequest;
 import com.alibou.security.dto.AuthenticationResponse;
 import com.alibou.security.dto.RegisterRequest;
@@ -15,20 +17,28 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/v1/auth")
 @RequiredArgsConstructor
 public class AuthenticationController {
     private final AuthenticationService authenticationService;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final LoginRateLimiter loginRateLimiter;
+
+    //register and authenticate are bcrypt bound, they run on the hashing pool and free the request thread meanwhile
     @PostMapping("/register")
-    public ResponseEntity<AuthenticationResponse> register(@Valid @RequestBody RegisterRequest request){
-       return ResponseEntity.ok(authenticationService.register(request));
+    public CompletableFuture<ResponseEntity<AuthenticationResponse>> register(@Valid @RequestBody RegisterRequest request){
+       return passwordHashingExecutor.submit(() -> ResponseEntity.ok(authenticationService.register(request)));
     }
 
     @PostMapping("/authenticate")
-    public ResponseEntity<AuthenticationResponse> authenticate(@Valid @RequestBody AuthenticationRequest request){
-        return ResponseEntity.ok(authenticationService.authenticate(request));
+    public CompletableFuture<ResponseEntity<AuthenticationResponse>> authenticate(@Valid @RequestBody AuthenticationRequest request,
+                                                                                 HttpServletRequest httpRequest){
+        //throttled before any hashing work is queued
+        loginRateLimiter.check(request.getEmail(), httpRequest.getRemoteAddr());
+        return passwordHashingExecutor.submit(() -> ResponseEntity.ok(authenticationService.authenticate(request)));
     }
 
     @PostMapping("/refresh-token")
@@ -0,0 +1,33 @@
+package com.alibou.security.controller;
+
+import com.alibou.security.dto.ServiceFlagsSnapshot;
+import com.alibou.security.service.ServiceFlagService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/admin/service-flags")
+@PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
+public class ServiceFlagController {
+    private final ServiceFlagService serviceFlagService;
+
+    //the flags this instance is using right now
+    @GetMapping
+    @PreAuthorize("hasAuthority('admin:read')")
+    public ResponseEntity<ServiceFlagsSnapshot> get() {
+        return ResponseEntity.ok(serviceFlagService.snapshot());
+    }
+
+    //picks up a change straight away instead of at the next check (or one made without bumping VERSION)
+    @PostMapping("/refresh")
+    @PreAuthorize("hasAuthority('admin:update')")
+    public ResponseEntity<ServiceFlagsSnapshot> refresh() {
+        return ResponseEntity.ok(serviceFlagService.refresh());
+    }
+}
@@ -0,0 +1,46 @@
+package com.alibou.security.controller;
+
+import com.alibou.security.config.PasswordHashingExecutor;
+import com.alibou.security.dto.AuthenticatedUser;
+import com.alibou.security.dto.AuthenticationResponse;
+import com.alibou.security.dto.ChangePasswordRequest;
+import com.alibou.security.service.UserService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/v1/users")
+@RequiredArgsConstructor
+public class UserController {
+    private final UserService userService;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+
+    //checks and hashes a password, so it runs on the hashing pool like login
+    @PatchMapping("/password")
+    public CompletableFuture<ResponseEntity<AuthenticationResponse>> changePassword(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                                                   @Valid @RequestBody ChangePasswordRequest request) {
+        return passwordHashingExecutor.submit(() -> {
+            userService.changePassword(principal, request);
+            return ResponseEntity.ok(AuthenticationResponse.builder()
+                    .message("Password changed, please log in again")
+                    .build());
+        });
+    }
+
+    @PostMapping("/logout-all")
+    public ResponseEntity<AuthenticationResponse> logoutAll(@AuthenticationPrincipal AuthenticatedUser principal) {
+        userService.logoutAll(principal);
+        return ResponseEntity.ok(AuthenticationResponse.builder()
+                .message("Logged out from all sessions")
+                .build());
+    }
+}
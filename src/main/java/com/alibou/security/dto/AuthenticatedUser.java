@@ -0,0 +1,33 @@
+package com.alibou.security.dto;
+
+import com.alibou.security.entity.User;
+import com.alibou.security.enums.Role;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+//principal put in the security context for a jwt request
+//only what authorization needs, no jpa entity, so nothing lazy can be loaded through it
+//controllers that need the full user load it by id
+public record AuthenticatedUser(Integer id, String email, Role role) implements AuthenticatedPrincipal, Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public static AuthenticatedUser from(User user) {
+        return new AuthenticatedUser(user.getId(), user.getEmail(), user.getRole());
+    }
+
+    //shared per role, see Role.getAuthorities
+    public List<SimpleGrantedAuthority> authorities() {
+        return role.getAuthorities();
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
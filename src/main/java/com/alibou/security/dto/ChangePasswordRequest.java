@@ -0,0 +1,20 @@
+package com.alibou.security.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChangePasswordRequest {
+    @NotBlank
+    private String currentPassword;
+    @NotBlank
+    @Size(min = 8, message = "password must have at least 8 characters")
+    private String newPassword;
+}
@@ -0,0 +1,15 @@
+package com.alibou.security.dto;
+
+import java.time.Instant;
+import java.util.Map;
+
+//every service flag as loaded at one point, immutable so it can be shared without locking
+public record ServiceFlagsSnapshot(Map<String, Integer> flags, ServiceFlagsVersion version, Instant loadedAt) {
+
+    public static final ServiceFlagsSnapshot EMPTY = new ServiceFlagsSnapshot(Map.of(), ServiceFlagsVersion.NONE, null);
+
+    //0 for a service without a row, as before
+    public int flag(String service) {
+        return flags.getOrDefault(service, 0);
+    }
+}
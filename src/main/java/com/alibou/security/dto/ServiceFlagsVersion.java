@@ -0,0 +1,9 @@
+package com.alibou.security.dto;
+
+//row count, sum of row versions and highest id of EXTERNAL_SERVICE_STATUS, compared to tell whether a reload is due.
+//updates only raise the sum, deletes only lower the count and inserts raise the highest id (ids are never reused),
+//so any mix of the three changes at least one of them
+public record ServiceFlagsVersion(long rows, long versionSum, long maxId) {
+
+    public static final ServiceFlagsVersion NONE = new ServiceFlagsVersion(-1, -1, -1);
+}
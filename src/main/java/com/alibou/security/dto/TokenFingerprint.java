@@ -0,0 +1,7 @@
+package com.alibou.security.dto;
+
+import java.time.Instant;
+
+//hash and natural expiry of a token, all the revocation registry needs to know about it
+public record TokenFingerprint(String tokenHash, Instant expiresAt) {
+}
@@ -0,0 +1,11 @@
+package com.alibou.security.dto;
+
+import java.time.Instant;
+
+//the columns the filter and logout read from a token row, selected without the row's user
+public record TokenState(String tokenHash, boolean expired, boolean revoked, Instant expiresAt) {
+
+    public boolean isActive() {
+        return !expired && !revoked;
+    }
+}
@@ -0,0 +1,5 @@
+package com.alibou.security.dto;
+
+//current token version of a user, what UserVersionRegistry loads for every user
+public record UserTokenVersion(Integer id, int tokenVersion) {
+}
@@ -0,0 +1,54 @@
+package com.alibou.security.encryption;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * chunked aes-gcm framing for payloads of any size.
+ *
+ *   header: version (1 byte) | key id (1 byte) | salt (16 random bytes)
+ *   chunk:  length of the sealed chunk (4 bytes, big endian, top bit set on the last chunk) | ciphertext + 16 byte tag
+ *
+ * every chunk holds at most chunk-size plaintext bytes and is sealed on its own, so both ends only ever hold one
+ * chunk in memory. chunks are not sealed with the ring key itself but with a key of their own stream, hkdf-sha256
+ * of the ring key and the salt (EncryptionKeyRing), so a nonce only has to be unique within one stream and no number of
+ * streams under one ring key can repeat a (key, nonce) pair short of a salt collision.
+ * the nonce of chunk n is 7 zero bytes | n (4 bytes) | 1 if last else 0: chunks cannot be reordered, dropped or
+ * moved past the end without the tag check failing, and a stream that stops before its last chunk is refused.
+ * an empty payload is a header and one empty last chunk.
+ * keys come from the EncryptionKeyRing (active key out, key named in the header in), ciphers from EncryptionEngine.
+ */
+public final class ChunkedAesGcm {
+
+    //1 was a random 7 byte nonce prefix under the ring key itself, refused since
+    public static final byte VERSION = 2;
+    static final int SALT_LENGTH = Hkdf.SALT_LENGTH;
+    static final int NONCE_LENGTH = 12;
+    static final int TAG_LENGTH = 16;
+    static final int LENGTH_FIELD = 4;
+    static final int LAST_CHUNK = 0x8000_0000;
+    static final byte[] STREAM_KEY_INFO = "chunked-aes-gcm stream".getBytes(StandardCharsets.US_ASCII);
+
+    private ChunkedAesGcm() {
+    }
+
+    public static OutputStream encrypt(OutputStream out, EncryptionKeyRing keyRing, int chunkSize) {
+        return new GcmEncryptingOutputStream(out, keyRing, chunkSize);
+    }
+
+    //chunks larger than maxChunkSize plaintext bytes are refused before anything is allocated for them
+    public static InputStream decrypt(InputStream in, EncryptionKeyRing keyRing, int maxChunkSize) {
+        return new GcmDecryptingInputStream(in, keyRing, maxChunkSize);
+    }
+
+    static byte[] nonce(int counter, boolean last) {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        nonce[7] = (byte) (counter >>> 24);
+        nonce[8] = (byte) (counter >>> 16);
+        nonce[9] = (byte) (counter >>> 8);
+        nonce[10] = (byte) counter;
+        nonce[11] = (byte) (last ? 1 : 0);
+        return nonce;
+    }
+}
@@ -0,0 +1,151 @@
+package com.alibou.security.encryption;
+
+import com.alibou.security.config.BufferPool;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import org.springframework.http.HttpHeaders;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+
+/*
+ * the body as the application sees it: decrypted chunk by chunk while it is read.
+ * the plaintext length is not known up front, so Content-Length is hidden.
+ * the chunk buffers come from the BufferPool, release() gives them back once the request is done.
+ */
+class DecryptingRequestWrapper extends HttpServletRequestWrapper {
+
+    private final EncryptionKeyRing keyRing;
+    private final BufferPool bufferPool;
+    private final int maxChunkSize;
+    private GcmDecryptingInputStream plaintext;
+    private ServletInputStream inputStream;
+    private BufferedReader reader;
+
+    DecryptingRequestWrapper(HttpServletRequest request, EncryptionKeyRing keyRing, BufferPool bufferPool, int maxChunkSize) {
+        super(request);
+        this.keyRing = keyRing;
+        this.bufferPool = bufferPool;
+        this.maxChunkSize = maxChunkSize;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (reader != null) {
+            throw new IllegalStateException("getReader() has already been called for this request");
+        }
+        if (inputStream == null) {
+            inputStream = new DecryptedInputStream(decrypt());
+        }
+        return inputStream;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (reader == null) {
+            if (inputStream != null) {
+                throw new IllegalStateException("getInputStream() has already been called for this request");
+            }
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            reader = new BufferedReader(new InputStreamReader(new DecryptedInputStream(decrypt()), charset));
+        }
+        return reader;
+    }
+
+    @Override
+    public int getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return -1;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name) ? null : super.getHeader(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        return HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        return Collections.enumeration(Collections.list(super.getHeaderNames()).stream()
+                .filter(name -> !HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name))
+                .toList());
+    }
+
+    void release() {
+        if (plaintext != null) {
+            plaintext.release();
+        }
+    }
+
+    private InputStream decrypt() throws IOException {
+        plaintext = new GcmDecryptingInputStream(super.getInputStream(), keyRing, maxChunkSize, bufferPool);
+        return plaintext;
+    }
+
+    //blocking reads only, like the rest of the application
+    private static final class DecryptedInputStream extends ServletInputStream {
+
+        private final InputStream plaintext;
+        private boolean finished;
+
+        private DecryptedInputStream(InputStream plaintext) {
+            this.plaintext = plaintext;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = plaintext.read();
+            finished = b == -1;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = plaintext.read(b, off, len);
+            finished = n == -1;
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return plaintext.available();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException("non-blocking reads of encrypted payloads are not supported");
+        }
+
+        @Override
+        public void close() throws IOException {
+            plaintext.close();
+        }
+    }
+}
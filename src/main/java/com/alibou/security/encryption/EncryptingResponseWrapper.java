@@ -0,0 +1,47 @@
+package com.alibou.security.encryption;
+
+import com.alibou.security.config.BufferPool;
+import com.alibou.security.config.CapturingResponseWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/*
+ * the body the application writes goes out encrypted, chunk by chunk, as it is written.
+ * the body is captured in pooled chunk-size segments and each full segment is sealed straight from the pooled
+ * buffer into a pooled sealed buffer, so a response allocates nothing per chunk.
+ * the encryption header is only set once the body is opened: a response without a body (or one the container
+ * renders through sendError) goes out as it is.
+ */
+class EncryptingResponseWrapper extends CapturingResponseWrapper {
+
+    private final EncryptionKeyRing keyRing;
+    private final BufferPool bufferPool;
+    private final int chunkSize;
+    private ByteBuffer sealed;
+
+    EncryptingResponseWrapper(HttpServletResponse response, EncryptionKeyRing keyRing, BufferPool bufferPool, int chunkSize) {
+        super(response, bufferPool, chunkSize);
+        this.keyRing = keyRing;
+        this.bufferPool = bufferPool;
+        this.chunkSize = chunkSize;
+    }
+
+    //opened again after reset() / resetBuffer(): a sealed buffer still held is reused, never acquired twice
+    @Override
+    protected Stage openStage() throws IOException {
+        setHeader(PayloadEncryptionFilter.HEADER, PayloadEncryptionFilter.SCHEME);
+        if (sealed == null) {
+            sealed = bufferPool.acquire(GcmChunkSealer.sealedSize(chunkSize));
+        }
+        return new GcmChunkSealer(getResponse().getOutputStream(), keyRing, sealed);
+    }
+
+    @Override
+    public void release() {
+        super.release();
+        bufferPool.release(sealed);
+        sealed = null;
+    }
+}
@@ -0,0 +1,68 @@
+package com.alibou.security.encryption;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Base64;
+import java.util.List;
+
+/*
+ * the aes keys payloads are encrypted with (app-encryption-keys), read once at startup.
+ * every key has a one byte id that travels in the payload header: new payloads use app-encryption-active-key-id,
+ * payloads under any other key of the ring still decrypt. rotating = add the new key, make it active, drop the
+ * old one once nothing encrypted under it is in flight.
+ * ring keys never encrypt anything themselves: callers get a key derived (Hkdf) from a ring key and a random salt
+ * they carry in their header, one per message or stream.
+ */
+@Component
+public class EncryptionKeyRing {
+
+    private static final int MAX_KEY_ID = 255;
+
+    private final SecretKey[] keys = new SecretKey[MAX_KEY_ID + 1];
+    private final int activeKeyId;
+
+    //entries are id:base64 of a 16, 24 or 32 byte key, comma separated
+    public EncryptionKeyRing(@Value("${app-encryption-keys}") List<String> entries,
+                             @Value("${app-encryption-active-key-id}") int activeKeyId) {
+        for (String entry : entries) {
+            int separator = entry.indexOf(':');
+            if (separator < 1) {
+                throw new IllegalArgumentException("app-encryption-keys entries must be id:base64-key");
+            }
+            int id = Integer.parseInt(entry.substring(0, separator).trim());
+            if (id < 0 || id > MAX_KEY_ID) {
+                throw new IllegalArgumentException("key id " + id + " is outside 0.." + MAX_KEY_ID);
+            }
+            if (keys[id] != null) {
+                throw new IllegalArgumentException("key id " + id + " is configured twice");
+            }
+            byte[] key = Base64.getDecoder().decode(entry.substring(separator + 1).trim());
+            if (key.length != 16 && key.length != 24 && key.length != 32) {
+                throw new IllegalArgumentException("key " + id + " is " + key.length + " bytes, aes needs 16, 24 or 32");
+            }
+            keys[id] = new SecretKeySpec(key, "AES");
+        }
+        if (activeKeyId < 0 || activeKeyId > MAX_KEY_ID || keys[activeKeyId] == null) {
+            throw new IllegalArgumentException("active key id " + activeKeyId + " is not in app-encryption-keys");
+        }
+        this.activeKeyId = activeKeyId;
+    }
+
+    public int activeKeyId() {
+        return activeKeyId;
+    }
+
+    //the key derived from the active key for this salt; info tells the formats apart
+    SecretKey activeKey(byte[] salt, byte[] info) {
+        return Hkdf.deriveKey(keys[activeKeyId], salt, info);
+    }
+
+    //null for an id that is not (or no longer) in the ring
+    SecretKey key(int id, byte[] salt, byte[] info) {
+        SecretKey key = id >= 0 && id <= MAX_KEY_ID ? keys[id] : null;
+        return key == null ? null : Hkdf.deriveKey(key, salt, info);
+    }
+}
@@ -0,0 +1,69 @@
+package com.alibou.security.encryption;
+
+import com.alibou.security.config.BufferPool;
+import com.alibou.security.config.CapturingResponseWrapper;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import static com.alibou.security.encryption.ChunkedAesGcm.*;
+
+/*
+ * seals one plaintext segment into one ChunkedAesGcm chunk and writes it out, the header goes before the first.
+ * every sealer draws its own salt, so its chunks are sealed with a key no other stream uses.
+ * the sealed buffer is the caller's (pooled for responses), it must hold a length field, chunk-size bytes and a tag.
+ */
+final class GcmChunkSealer implements CapturingResponseWrapper.Stage {
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private final OutputStream out;
+    private final int keyId;
+    private final SecretKey key;
+    private final byte[] salt = new byte[SALT_LENGTH];
+    private final ByteBuffer sealed;
+    private int counter;
+    private boolean headerWritten;
+
+    GcmChunkSealer(OutputStream out, EncryptionKeyRing keyRing, ByteBuffer sealed) {
+        this.out = out;
+        this.keyId = keyRing.activeKeyId();
+        this.sealed = sealed;
+        random.nextBytes(salt);
+        this.key = keyRing.activeKey(salt, STREAM_KEY_INFO);
+    }
+
+    static int sealedSize(int chunkSize) {
+        return LENGTH_FIELD + chunkSize + TAG_LENGTH;
+    }
+
+    @Override
+    public void accept(ByteBuffer plain, boolean last) throws IOException {
+        if (!headerWritten) {
+            out.write(VERSION);
+            out.write(keyId);
+            out.write(salt);
+            headerWritten = true;
+        }
+        if (counter == -1) {
+            throw new IOException("payload too large for one stream");
+        }
+        sealed.clear().position(LENGTH_FIELD);
+        int length;
+        try {
+            Cipher cipher = EncryptionEngine.cipher();
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, nonce(counter++, last)));
+            length = cipher.doFinal(plain, sealed);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("could not encrypt payload chunk", e);
+        }
+        sealed.putInt(0, last ? length | LAST_CHUNK : length);
+        BufferPool.write(sealed.flip(), out);
+    }
+}
@@ -0,0 +1,174 @@
+package com.alibou.security.encryption;
+
+import com.alibou.security.config.BufferPool;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+import static com.alibou.security.encryption.ChunkedAesGcm.*;
+
+/*
+ * opens ChunkedAesGcm chunks as they are read, holding one sealed and one plain chunk at a time.
+ * plaintext of a chunk is only handed out after its tag checked, any tampering surfaces as PayloadDecryptionException.
+ * a body without a single byte is read as an empty payload.
+ * with a BufferPool both buffers are pooled and go back on release(), otherwise they are plain allocations.
+ */
+final class GcmDecryptingInputStream extends InputStream {
+
+    private final InputStream in;
+    private final EncryptionKeyRing keyRing;
+    private final int maxChunkSize;
+    private final BufferPool bufferPool;
+    private SecretKey key;
+    private ByteBuffer sealed;
+    private ByteBuffer plain;
+    private int counter;
+    private boolean finished;
+    private boolean released;
+
+    GcmDecryptingInputStream(InputStream in, EncryptionKeyRing keyRing, int maxChunkSize) {
+        this(in, keyRing, maxChunkSize, null);
+    }
+
+    GcmDecryptingInputStream(InputStream in, EncryptionKeyRing keyRing, int maxChunkSize, BufferPool bufferPool) {
+        this.in = in;
+        this.keyRing = keyRing;
+        this.maxChunkSize = maxChunkSize;
+        this.bufferPool = bufferPool;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return plain.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, plain.remaining());
+        plain.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return plain == null ? 0 : plain.remaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        release();
+        in.close();
+    }
+
+    //gives the buffers back, the stream cannot be read afterwards
+    void release() {
+        if (bufferPool != null && !released) {
+            bufferPool.release(sealed);
+            bufferPool.release(plain);
+        }
+        released = true;
+        sealed = null;
+        plain = null;
+    }
+
+    //false once the last chunk is used up
+    private boolean fill() throws IOException {
+        if (released) {
+            throw new IOException("decrypted payload already released");
+        }
+        while (plain == null || !plain.hasRemaining()) {
+            if (finished) {
+                return false;
+            }
+            if (key == null && !readHeader()) {
+                finished = true;
+                return false;
+            }
+            openChunk();
+        }
+        return true;
+    }
+
+    private boolean readHeader() throws IOException {
+        int version = in.read();
+        if (version == -1) {
+            return false;
+        }
+        if (version != VERSION) {
+            throw new PayloadDecryptionException("unsupported payload version " + version);
+        }
+        int keyId = in.read();
+        if (keyId == -1) {
+            throw new PayloadDecryptionException("payload ended inside the header");
+        }
+        SecretKey streamKey = keyRing.key(keyId, readFully(SALT_LENGTH, "header"), STREAM_KEY_INFO);
+        if (streamKey == null) {
+            throw new PayloadDecryptionException("unknown key id " + keyId);
+        }
+        key = streamKey;
+        sealed = allocate(maxChunkSize + TAG_LENGTH);
+        plain = allocate(maxChunkSize);
+        return true;
+    }
+
+    private void openChunk() throws IOException {
+        byte[] field = in.readNBytes(LENGTH_FIELD);
+        if (field.length < LENGTH_FIELD) {
+            throw new PayloadDecryptionException("payload ended before its last chunk");
+        }
+        int value = (field[0] & 0xff) << 24 | (field[1] & 0xff) << 16 | (field[2] & 0xff) << 8 | (field[3] & 0xff);
+        boolean last = (value & LAST_CHUNK) != 0;
+        int length = value & ~LAST_CHUNK;
+        if (length < TAG_LENGTH || length > maxChunkSize + TAG_LENGTH) {
+            throw new PayloadDecryptionException("invalid chunk length " + length);
+        }
+        sealed.clear();
+        if (BufferPool.read(in, sealed, length) < length) {
+            throw new PayloadDecryptionException("payload ended inside a chunk");
+        }
+        plain.clear();
+        try {
+            Cipher cipher = EncryptionEngine.cipher();
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, nonce(counter++, last)));
+            cipher.doFinal(sealed.flip(), plain);
+        } catch (AEADBadTagException e) {
+            throw new PayloadDecryptionException("payload chunk failed authentication");
+        } catch (GeneralSecurityException e) {
+            throw new PayloadDecryptionException("could not decrypt payload chunk: " + e.getMessage());
+        }
+        plain.flip();
+        if (last) {
+            finished = true;
+            if (in.read() != -1) {
+                throw new PayloadDecryptionException("data after the last chunk");
+            }
+        }
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return bufferPool != null ? bufferPool.acquire(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    private byte[] readFully(int length, String part) throws IOException {
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length < length) {
+            throw new PayloadDecryptionException("payload ended inside the " + part);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,81 @@
+package com.alibou.security.encryption;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/*
+ * seals plaintext into ChunkedAesGcm chunks as it is written, one chunk-size buffer at a time.
+ * a full buffer is only sealed once more data arrives, the last chunk is sealed by finish().
+ * flush() passes through without sealing a partial chunk, message converters flush after every body
+ * and each flush would otherwise cost a chunk header and a tag.
+ * the stand-alone form of what CapturingResponseWrapper and GcmChunkSealer do for responses.
+ */
+final class GcmEncryptingOutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private final GcmChunkSealer sealer;
+    private final ByteBuffer plain;
+    private boolean finished;
+
+    GcmEncryptingOutputStream(OutputStream out, EncryptionKeyRing keyRing, int chunkSize) {
+        this.out = out;
+        this.sealer = new GcmChunkSealer(out, keyRing, ByteBuffer.allocate(GcmChunkSealer.sealedSize(chunkSize)));
+        this.plain = ByteBuffer.allocate(chunkSize);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (!plain.hasRemaining()) {
+            seal(false);
+        }
+        plain.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            if (!plain.hasRemaining()) {
+                seal(false);
+            }
+            int n = Math.min(len, plain.remaining());
+            plain.put(b, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    //seals what is buffered as the last chunk, the underlying stream stays open
+    void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        seal(true);
+        finished = true;
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        out.close();
+    }
+
+    private void seal(boolean last) throws IOException {
+        sealer.accept(plain.flip(), last);
+        plain.clear();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished) {
+            throw new IOException("encrypted payload already finished");
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.alibou.security.encryption;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+
+/*
+ * hkdf-sha256 (rfc 5869) for keys of at most 32 bytes: one extract and one expand block.
+ * turns a long-lived ring key and a random salt into a key that is used for one payload only, so nonces only have
+ * to be unique within that payload. every thread keeps its own Mac, as EncryptionEngine does with its Cipher.
+ */
+final class Hkdf {
+
+    static final int SALT_LENGTH = 16;
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int HASH_LENGTH = 32;
+
+    private static final ThreadLocal<Mac> macs = ThreadLocal.withInitial(Hkdf::newMac);
+
+    private Hkdf() {
+    }
+
+    //an aes key as long as the ring key, bound to salt and info
+    static SecretKey deriveKey(SecretKey key, byte[] salt, byte[] info) {
+        byte[] ikm = key.getEncoded();
+        if (ikm.length > HASH_LENGTH) {
+            throw new IllegalArgumentException("keys longer than " + HASH_LENGTH + " bytes need more than one block");
+        }
+        try {
+            Mac mac = macs.get();
+            mac.init(new SecretKeySpec(salt, ALGORITHM));
+            byte[] prk = mac.doFinal(ikm);
+            mac.init(new SecretKeySpec(prk, ALGORITHM));
+            mac.update(info);
+            mac.update((byte) 1);
+            byte[] okm = mac.doFinal();
+            return new SecretKeySpec(okm, 0, ikm.length, "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("could not derive key", e);
+        }
+    }
+
+    private static Mac newMac() {
+        try {
+            return Mac.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("hmac-sha256 is not available", e);
+        }
+    }
+}
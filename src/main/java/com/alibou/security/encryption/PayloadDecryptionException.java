@@ -0,0 +1,11 @@
+package com.alibou.security.encryption;
+
+import java.io.IOException;
+
+//an encrypted body that is malformed, truncated or fails its tag check; surfaces as 400 through message conversion
+public class PayloadDecryptionException extends IOException {
+
+    public PayloadDecryptionException(String message) {
+        super(message);
+    }
+}
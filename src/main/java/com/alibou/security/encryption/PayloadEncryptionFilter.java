@@ -0,0 +1,155 @@
+package com.alibou.security.encryption;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import com.alibou.security.config.BufferPool;
+import com.alibou.security.constants.CommonConstants;
+import com.alibou.security.dto.ErrorDetails;
+import com.alibou.security.service.ServiceFlagService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.Locale;
+
+/*
+ * end to end payload encryption, opt-in per request (app-encryption-*).
+ * a request sent with "X-Payload-Encryption: aes-gcm" has its body decrypted while the application reads it
+ * and its response body encrypted while the application writes it, both in ChunkedAesGcm framing. memory per
+ * request is a few pooled chunk buffers (BufferPool) whatever the payload size, so large uploads (document upload
+ * with e-sign) work the same as small json bodies. requests without the header are passed through untouched, unless
+ * app-encryption-required is set: then they are refused with 400 while the DEBUG service flag is off, as the old
+ * request wrapper did. the flag comes from ServiceFlagService's in-memory snapshot, not from the database.
+ * encrypted form and multipart bodies are refused with 415: the container parses those for getParameter / getParts
+ * from the raw request, which would hand the application ciphertext.
+ * runs before spring security so the responses security writes itself (logout) are encrypted as well.
+ * async requests are finished on their last dispatch, as ShallowEtagHeaderFilter does.
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 10)
+public class PayloadEncryptionFilter extends OncePerRequestFilter {
+
+    static Logger logger = LoggerFactory.getLogger(PayloadEncryptionFilter.class);
+
+    public static final String HEADER = "X-Payload-Encryption";
+    public static final String SCHEME = "aes-gcm";
+
+    private final boolean enabled;
+    private final boolean required;
+    private final EncryptionKeyRing keyRing;
+    private final BufferPool bufferPool;
+    private final ServiceFlagService serviceFlagService;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    public PayloadEncryptionFilter(@Value("${app-encryption-enabled}") boolean enabled,
+                                   @Value("${app-encryption-required}") boolean required,
+                                   EncryptionKeyRing keyRing,
+                                   BufferPool bufferPool,
+                                   ServiceFlagService serviceFlagService,
+                                   ObjectMapper objectMapper,
+                                   @Value("${app-encryption-chunk-size}") int chunkSize) {
+        this.enabled = enabled;
+        this.required = required;
+        this.keyRing = keyRing;
+        this.bufferPool = bufferPool;
+        this.serviceFlagService = serviceFlagService;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        if (enabled) {
+            logger.info("payload encryption {} for requests with {}: {}, {} byte chunks, key {}",
+                    required ? "required" : "on", HEADER, SCHEME, chunkSize, keyRing.activeKeyId());
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled || (!required && !isEncrypted(request)) || CorsUtils.isPreFlightRequest(request);
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        if (!isEncrypted(request)) {
+            if (serviceFlagService.isOn(CommonConstants.DEBUG)) {
+                filterChain.doFilter(request, response);
+            } else {
+                writePlaintextRefused(request, response);
+            }
+            return;
+        }
+        //on an async dispatch the wrappers from the first dispatch are already in place
+        DecryptingRequestWrapper decryptingRequest = WebUtils.getNativeRequest(request, DecryptingRequestWrapper.class);
+        EncryptingResponseWrapper encryptingResponse = WebUtils.getNativeResponse(response, EncryptingResponseWrapper.class);
+        if (encryptingResponse == null) {
+            if (isParsedByContainer(request.getContentType())) {
+                writeError(request, response, HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE,
+                        "Encrypted form and multipart bodies are not supported");
+                return;
+            }
+            decryptingRequest = new DecryptingRequestWrapper(request, keyRing, bufferPool, chunkSize);
+            encryptingResponse = new EncryptingResponseWrapper(response, keyRing, bufferPool, chunkSize);
+            request = decryptingRequest;
+            response = encryptingResponse;
+        }
+        try {
+            filterChain.doFilter(request, response);
+            if (!isAsyncStarted(request)) {
+                encryptingResponse.finish();
+            }
+        } finally {
+            //buffers go back to the pool on the last dispatch only, an async request is still writing
+            if (!isAsyncStarted(request)) {
+                encryptingResponse.release();
+                if (decryptingRequest != null) {
+                    decryptingRequest.release();
+                }
+            }
+        }
+    }
+
+    private static boolean isEncrypted(HttpServletRequest request) {
+        return SCHEME.equalsIgnoreCase(request.getHeader(HEADER));
+    }
+
+    //bodies read through getParameter / getParts, which never go through the wrapper
+    private static boolean isParsedByContainer(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith(MediaType.APPLICATION_FORM_URLENCODED_VALUE) || type.startsWith("multipart/");
+    }
+
+    private void writePlaintextRefused(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        writeError(request, response, HttpServletResponse.SC_BAD_REQUEST,
+                "Payload encryption is required (" + HEADER + ": " + SCHEME + ")");
+    }
+
+    private void writeError(HttpServletRequest request, HttpServletResponse response, int status, String message)
+            throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                new ErrorDetails(new Date(), message, "uri=" + request.getRequestURI()));
+    }
+}
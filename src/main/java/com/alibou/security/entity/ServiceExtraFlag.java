@@ -0,0 +1,43 @@
+package com.alibou.security.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+//per service switches (e.g. CommonConstants.DEBUG), read through ServiceFlagService, never per request
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "EXTERNAL_SERVICE_STATUS")
+public class ServiceExtraFlag implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @Column(name = "SERVICE_NAME", unique = true)
+    private String service;
+
+    @Column(name = "STATUS")
+    private int flag;
+
+    //bumped on every update, ServiceFlagService reloads when the versions change
+    //(a change made with plain sql must bump it too, and an insert must not reuse an id, or wait for a forced refresh)
+    @Version
+    @Column(name = "VERSION")
+    private long version;
+}
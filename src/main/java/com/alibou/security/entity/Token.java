@@ -5,30 +5,45 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.io.Serial;
 import java.io.Serializable;
+import java.time.Instant;
 
 @Data
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-//@Table(name = "")
+@Table(indexes = {
+        @Index(name = "ux_token_token_hash", columnList = "token_hash", unique = true),
+        @Index(name = "idx_token_user_state", columnList = "user_id, revoked, expired"),
+        @Index(name = "idx_token_expires_at", columnList = "expires_at")
+})
 public class Token implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
-    private String token;
+    //sha-256 of the jwt in hex (see TokenHasher), the raw token is no longer stored
+    @Column(name = "token_hash", length = 64)
+    private String tokenHash;
     @Enumerated(EnumType.STRING)
     private TokenType tokenType;
     private boolean expired;
     private boolean revoked;
-    @ManyToOne
+    //exp of the jwt, null for rows written before it was stored
+    @Column(name = "expires_at")
+    private Instant expiresAt;
+    //lazy: the hot paths read token columns only (TokenState), the user is never needed with the token
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private User user;
 
 }
@@ -6,6 +6,8 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -21,9 +23,14 @@ import java.util.List;
 @NoArgsConstructor
 @Entity
 @Table(name = "user")
+//read-write: a soft lock while an update is in flight, so a concurrent reader goes to the table instead of a stale entry
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
 public class User implements UserDetails, Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
+    public static final String CACHE_REGION = "users";
+    public static final String EMAIL_QUERY_CACHE_REGION = "users-by-email";
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
@@ -33,6 +40,9 @@ public class User implements UserDetails, Serializable {
     private String password;
     @Enumerated(EnumType.STRING)
     private Role role;
+    //bumped whenever the role changes, tokens carrying an older value are refused
+    @Column(nullable = false)
+    private int tokenVersion;
     @OneToMany(mappedBy = "user")
     private List<Token> tokens;
 
@@ -3,6 +3,12 @@ package com.alibou.security.enums;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @RequiredArgsConstructor
 public enum Permission {
 
@@ -19,4 +25,29 @@ public enum Permission {
 
     @Getter
     private final String permission;
+
+    private static final Map<String, Permission> BY_AUTHORITY = Arrays.stream(values())
+            .collect(Collectors.toUnmodifiableMap(Permission::getPermission, Function.identity()));
+
+    //one bit per permission, lets a set of permissions be compared with a single and
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    public static int maskOf(Collection<Permission> permissions) {
+        int mask = 0;
+        for (Permission permission : permissions) {
+            mask |= permission.mask();
+        }
+        return mask;
+    }
+
+    public static int maskOf(Permission... permissions) {
+        return maskOf(Arrays.asList(permissions));
+    }
+
+    //null when the authority string is not a permission (e.g. ROLE_ADMIN)
+    public static Permission fromAuthority(String authority) {
+        return BY_AUTHORITY.get(authority);
+    }
 }
@@ -1,7 +1,6 @@
 package com.alibou.security.enums;
 
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 
 import java.util.Collections;
@@ -18,7 +17,6 @@ import static com.alibou.security.enums.Permission.MANAGER_DELETE;
 import static com.alibou.security.enums.Permission.MANAGER_READ;
 import static com.alibou.security.enums.Permission.MANAGER_UPDATE;
 
-@RequiredArgsConstructor
 public enum Role {
     USER(Collections.emptySet()),
     ADMIN(
@@ -44,18 +42,40 @@ public enum Role {
     ;
     @Getter
     private final Set<Permission> permissions;
+    //bit set of the permissions above, see Permission.mask()
+    @Getter
+    private final int permissionMask;
+    private final List<SimpleGrantedAuthority> authorities;
 
-   //need the below code to access the roles defined in this enum
-    //without this the enum is useless
-    //
-    public List<SimpleGrantedAuthority> getAuthorities() {
-        var authorities = getPermissions()
+    Role(Set<Permission> permissions) {
+        this.permissions = permissions;
+        this.permissionMask = Permission.maskOf(permissions);
+        var authorities = permissions
                 .stream()
                 .map(permission -> new SimpleGrantedAuthority(permission.getPermission()))
                 .collect(Collectors.toList());
         authorities.add(new SimpleGrantedAuthority("ROLE_" + this.name()));
+        this.authorities = List.copyOf(authorities);
+    }
+
+   //need the below code to access the roles defined in this enum
+    //without this the enum is useless
+    //built once per role, every user of a role shares the same immutable list
+    public List<SimpleGrantedAuthority> getAuthorities() {
         return authorities;
     }
+
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    public static int maskOf(Role... roles) {
+        int mask = 0;
+        for (Role role : roles) {
+            mask |= role.mask();
+        }
+        return mask;
+    }
 }
 //these are the roles for users
-//this.name() is for user, admin, manager roles.
\ No newline at end of file
+//this.name() is for user, admin, manager roles.
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.alibou.security.repository;
+
+import com.alibou.security.dto.ServiceFlagsVersion;
+import com.alibou.security.entity.ServiceExtraFlag;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public interface ServiceExtraFlagRepository extends JpaRepository<ServiceExtraFlag, Long> {
+
+    Optional<ServiceExtraFlag> findByService(String service);
+
+    //one row of three numbers: a versioned update, a delete or an insert with a new id changes it (see ServiceFlagsVersion)
+    @Transactional(readOnly = true)
+    @Query("select new com.alibou.security.dto.ServiceFlagsVersion(count(f), coalesce(sum(f.version), 0L), coalesce(max(f.id), 0L))"
+            + " from ServiceExtraFlag f")
+    ServiceFlagsVersion findVersion();
+}
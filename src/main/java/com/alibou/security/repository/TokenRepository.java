@@ -1,23 +1,52 @@
 package com.alibou.security.repository;
 
+import com.alibou.security.dto.TokenFingerprint;
+import com.alibou.security.dto.TokenState;
 import com.alibou.security.entity.Token;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
 public interface TokenRepository extends JpaRepository<Token, Integer> {
-    @Query(" select t from Token t inner join User u on t.user.id = u.id where u.id = :userId and (t.expired = false or t.revoked = false) ")
-    List<Token> findAllValidTokensByUser(Integer userId);
+    //served by the (user_id, revoked, expired) index, no join to user
+    @Transactional(readOnly = true)
+    @Query("select new com.alibou.security.dto.TokenFingerprint(t.tokenHash, t.expiresAt) from Token t where t.user.id = :userId and t.revoked = false and t.expired = false")
+    List<TokenFingerprint> findActiveTokensByUser(Integer userId);
 
-    Optional<Token> findByToken(String token);
+    @Modifying
+    @Query("update Token t set t.revoked = true, t.expired = true where t.user.id = :userId and t.revoked = false and t.expired = false")
+    int revokeAllActiveTokensByUser(Integer userId);
+
+    //the filter and logout only need the flags, no Token or User entity is loaded
+    @Transactional(readOnly = true)
+    @Query("select new com.alibou.security.dto.TokenState(t.tokenHash, t.expired, t.revoked, t.expiresAt) from Token t where t.tokenHash = :tokenHash")
+    Optional<TokenState> findStateByTokenHash(String tokenHash);
+
+    //0 when the token was revoked in the meantime
+    @Modifying
+    @Transactional
+    @Query("update Token t set t.revoked = true, t.expired = true where t.tokenHash = :tokenHash and t.revoked = false and t.expired = false")
+    int revokeByTokenHash(String tokenHash);
+
+    @Transactional(readOnly = true)
+    @Query("select new com.alibou.security.dto.TokenFingerprint(t.tokenHash, t.expiresAt) from Token t where t.revoked = true and t.expiresAt > :now")
+    List<TokenFingerprint> findAllRevokedNotExpired(Instant now);
+
+    //revoked rows are kept until their jwt expires, the revocation registry is reloaded from them
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM token WHERE expires_at < :now LIMIT :batchSize", nativeQuery = true)
+    int deleteExpiredTokens(Instant now, int batchSize);
 
+    //rows without expires_at predate it and are still checked against the table, so they can go once revoked
     @Modifying
     @Transactional
-    @Query("DELETE FROM Token t WHERE t.revoked = true or t.expired = true")
-    void deleteAllRevokedTokens();
+    @Query(value = "DELETE FROM token WHERE expires_at IS NULL AND (revoked = true OR expired = true) LIMIT :batchSize", nativeQuery = true)
+    int deleteRevokedLegacyTokens(int batchSize);
 
 }
@@ -1,12 +1,82 @@
 package com.alibou.security.repository;
 
+import com.alibou.security.dto.AuthenticatedUser;
+import com.alibou.security.dto.UserTokenVersion;
 import com.alibou.security.entity.User;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
+//lookups are read-only transactions so they can be served by the replica (app-datasource-replica-enabled)
 public interface UserRepository extends JpaRepository<User,Integer> {
+    //result cached in the users-by-email region, the user itself comes from the users region
+    //read-only: no snapshot is kept for dirty checking, changes to a user go through the locked lookups below
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = User.EMAIL_QUERY_CACHE_REGION),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Transactional(readOnly = true)
     Optional<User> findByEmail(String email);
 
+    //findByEmail without the query cache, for a second look on the primary after the replica missed
+    @Transactional(readOnly = true)
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true"))
+    @Query("select u from User u where u.email = :email")
+    Optional<User> findUncachedByEmail(String email);
+
+    @Transactional(readOnly = true)
     boolean existsByEmail(String email);
+
+    //request authentication only needs these columns, no managed entity
+    @Transactional(readOnly = true)
+    @Query("select new com.alibou.security.dto.AuthenticatedUser(u.id, u.email, u.role) from User u where u.email = :email")
+    Optional<AuthenticatedUser> findPrincipalByEmail(String email);
+
+    //taken before replacing a user's tokens so concurrent logins of that user run one after the other
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from User u where u.id = :id")
+    Optional<User> findLockedById(Integer id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from User u where u.email = :email")
+    Optional<User> findLockedByEmail(String email);
+
+    /*
+     * changes to a user go through the managed entity: the flush then replaces only that user's entry in the users
+     * region. a bulk "update User" statement makes hibernate drop the whole region, every user's cached copy.
+     * (cached query results over the user table are invalidated either way, the users-by-email lookups then run one
+     * select and still take the entities from the region)
+     */
+    @Transactional
+    default int updatePassword(String email, String password) {
+        return findLockedByEmail(email).map(user -> {
+            user.setPassword(password);
+            return 1;
+        }).orElse(0);
+    }
+
+    @Transactional(readOnly = true)
+    @Query("select u.tokenVersion from User u where u.id = :id")
+    Optional<Integer> findTokenVersionById(Integer id);
+
+    @Transactional(readOnly = true)
+    @Query("select new com.alibou.security.dto.UserTokenVersion(u.id, u.tokenVersion) from User u")
+    List<UserTokenVersion> findAllTokenVersions();
+
+    //the row lock keeps concurrent bumps from losing one, returns the new version
+    @Transactional
+    default int incrementTokenVersion(Integer id) {
+        User user = findLockedById(id).orElseThrow();
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        return user.getTokenVersion();
+    }
 }
@@ -0,0 +1,11 @@
+package com.alibou.security.screening;
+
+import java.io.IOException;
+
+//a body read past the prefetched part hit a blocked rule, reading stops there
+public class PayloadRejectedException extends IOException {
+
+    public PayloadRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,187 @@
+package com.alibou.security.screening;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+
+/*
+ * every screening rule in one aho-corasick automaton, compiled once.
+ * rules are literal byte strings matched ignoring ascii case. the goto and failure links are folded into a full
+ * transition table (state x byte), so scanning is one table lookup per byte whatever the number of rules, and a
+ * body is read once instead of once per rule. each state knows which rules end there as a bit mask
+ * (so at most 64 rules), a scan is just the current state plus the mask of rules seen so far.
+ * the automaton is immutable and shared, a Scan belongs to one request.
+ */
+public final class PayloadScanner {
+
+    public static final int MAX_RULES = Long.SIZE;
+
+    private final List<String> rules;
+    private final int[] transitions;
+    private final long[] matches;
+
+    private PayloadScanner(List<String> rules, int[] transitions, long[] matches) {
+        this.rules = rules;
+        this.transitions = transitions;
+        this.matches = matches;
+    }
+
+    public static PayloadScanner compile(List<String> rules) {
+        List<String> normalized = new ArrayList<>();
+        for (String rule : rules) {
+            String value = rule.trim().toLowerCase(Locale.ROOT);
+            if (!value.isEmpty() && !normalized.contains(value)) {
+                normalized.add(value);
+            }
+        }
+        if (normalized.size() > MAX_RULES) {
+            throw new IllegalArgumentException("at most " + MAX_RULES + " screening rules, got " + normalized.size());
+        }
+
+        //trie first: goto[state * 256 + byte], -1 = no edge
+        List<int[]> edges = new ArrayList<>();
+        List<Long> outputs = new ArrayList<>();
+        edges.add(newEdges());
+        outputs.add(0L);
+        for (int rule = 0; rule < normalized.size(); rule++) {
+            int state = 0;
+            for (byte b : normalized.get(rule).getBytes(StandardCharsets.UTF_8)) {
+                int symbol = b & 0xff;
+                if (edges.get(state)[symbol] == -1) {
+                    edges.get(state)[symbol] = edges.size();
+                    edges.add(newEdges());
+                    outputs.add(0L);
+                }
+                state = edges.get(state)[symbol];
+            }
+            outputs.set(state, outputs.get(state) | 1L << rule);
+        }
+
+        //breadth first: missing edges point where the failure link would lead, outputs inherit the failure state's
+        int states = edges.size();
+        int[] transitions = new int[states * 256];
+        long[] matches = new long[states];
+        int[] failure = new int[states];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < 256; symbol++) {
+            int next = edges.get(0)[symbol];
+            transitions[symbol] = next == -1 ? 0 : next;
+            if (next != -1) {
+                queue.add(next);
+            }
+        }
+        matches[0] = outputs.get(0);
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            matches[state] = outputs.get(state) | matches[failure[state]];
+            for (int symbol = 0; symbol < 256; symbol++) {
+                int next = edges.get(state)[symbol];
+                if (next == -1) {
+                    transitions[state * 256 + symbol] = transitions[failure[state] * 256 + symbol];
+                } else {
+                    failure[next] = transitions[failure[state] * 256 + symbol];
+                    transitions[state * 256 + symbol] = next;
+                    queue.add(next);
+                }
+            }
+        }
+
+        //upper case ascii letters follow their lower case edge
+        for (int state = 0; state < states; state++) {
+            for (int symbol = 'A'; symbol <= 'Z'; symbol++) {
+                transitions[state * 256 + symbol] = transitions[state * 256 + symbol + ('a' - 'A')];
+            }
+        }
+        return new PayloadScanner(List.copyOf(normalized), transitions, matches);
+    }
+
+    private static int[] newEdges() {
+        int[] edges = new int[256];
+        Arrays.fill(edges, -1);
+        return edges;
+    }
+
+    public Scan newScan() {
+        return new Scan();
+    }
+
+    public List<String> rules() {
+        return rules;
+    }
+
+    public List<String> rules(long mask) {
+        List<String> names = new ArrayList<>(Long.bitCount(mask));
+        for (int rule = 0; rule < rules.size(); rule++) {
+            if ((mask & 1L << rule) != 0) {
+                names.add(rules.get(rule));
+            }
+        }
+        return names;
+    }
+
+    //mask of the given rules, unknown ones are ignored
+    public long mask(List<String> names) {
+        long mask = 0;
+        for (String name : names) {
+            int rule = rules.indexOf(name.trim().toLowerCase(Locale.ROOT));
+            if (rule >= 0) {
+                mask |= 1L << rule;
+            }
+        }
+        return mask;
+    }
+
+    public final class Scan {
+
+        private int state;
+        private long matched;
+        private long scanned;
+
+        private Scan() {
+        }
+
+        //matches may span calls, the state carries over
+        public long update(byte[] b, int off, int len) {
+            int current = state;
+            long seen = matched;
+            for (int i = off, end = off + len; i < end; i++) {
+                current = transitions[current << 8 | (b[i] & 0xff)];
+                seen |= matches[current];
+            }
+            state = current;
+            matched = seen;
+            scanned += len;
+            return seen;
+        }
+
+        //from position to limit, the buffer's position is left alone
+        public long update(ByteBuffer buffer) {
+            if (buffer.hasArray()) {
+                return update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            }
+            int current = state;
+            long seen = matched;
+            for (int i = buffer.position(), end = buffer.limit(); i < end; i++) {
+                current = transitions[current << 8 | (buffer.get(i) & 0xff)];
+                seen |= matches[current];
+            }
+            state = current;
+            matched = seen;
+            scanned += buffer.remaining();
+            return seen;
+        }
+
+        public long matched() {
+            return matched;
+        }
+
+        public long scanned() {
+            return scanned;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.alibou.security.screening;
+
+import com.alibou.security.config.BufferPool;
+import com.alibou.security.config.RouteTable;
+import com.alibou.security.dto.ErrorDetails;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+ * input screening of request bodies (app-screening-*).
+ * app-screening-rules are compiled once into a PayloadScanner, every body is scanned in one pass as raw bytes.
+ * screening is byte level: nothing is decoded first, so the same content written as a json unicode escape (of <
+ * or &lt;), or in a percent or entity encoding the rules do not list, goes through. it is a first filter, not a
+ * guarantee that stored or echoed data is safe.
+ * form (application/x-www-form-urlencoded) and multipart bodies are not screened: the container parses them for
+ * getParameter / getParts straight from the raw request, so prefetching would leave it an already consumed body.
+ * endpoints taking those have to validate their fields themselves.
+ * app-screening-allow lifts rules per endpoint: "pattern:rule;rule" or "pattern:*" for every rule, patterns as in
+ * RouteTable. the first prefetch-bytes of the body are read and scanned before the chain, so a blocked body that
+ * fits is refused with 400 before security, validation or json binding see it; anything longer is scanned while the
+ * application reads it. with app-screening-reject=false matches are only logged and counted.
+ * runs after PayloadEncryptionFilter so encrypted bodies are screened as plaintext.
+ * metrics: screening.requests (result clean / matched / rejected), screening.matches (per rule), screening.scanned.bytes
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 5)
+public class PayloadScreeningFilter extends OncePerRequestFilter {
+
+    static Logger logger = LoggerFactory.getLogger(PayloadScreeningFilter.class);
+
+    private static final String REJECTED_MESSAGE = "Request body contains content that is not allowed";
+
+    private final boolean enabled;
+    private final boolean reject;
+    private final int prefetchBytes;
+    private final PayloadScanner scanner;
+    private final long allRules;
+    private final List<Allowance> allowances = new ArrayList<>();
+    private final BufferPool bufferPool;
+    private final ObjectMapper objectMapper;
+    private final Counter clean;
+    private final Counter matched;
+    private final Counter rejected;
+    private final Counter scannedBytes;
+    private final Counter[] ruleMatches;
+
+    public PayloadScreeningFilter(@Value("${app-screening-enabled}") boolean enabled,
+                                  @Value("${app-screening-reject}") boolean reject,
+                                  @Value("${app-screening-prefetch-bytes}") int prefetchBytes,
+                                  @Value("${app-screening-rules}") List<String> rules,
+                                  @Value("${app-screening-allow}") List<String> allow,
+                                  BufferPool bufferPool,
+                                  ObjectMapper objectMapper,
+                                  MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.reject = reject;
+        this.prefetchBytes = prefetchBytes;
+        this.scanner = PayloadScanner.compile(rules);
+        this.allRules = scanner.rules().size() == PayloadScanner.MAX_RULES ? -1L : (1L << scanner.rules().size()) - 1;
+        this.bufferPool = bufferPool;
+        this.objectMapper = objectMapper;
+        this.clean = requests(meterRegistry, "clean");
+        this.matched = requests(meterRegistry, "matched");
+        this.rejected = requests(meterRegistry, "rejected");
+        this.scannedBytes = Counter.builder("screening.scanned.bytes")
+                .description("request body bytes run through the screening rules")
+                .register(meterRegistry);
+        this.ruleMatches = new Counter[scanner.rules().size()];
+        for (int i = 0; i < ruleMatches.length; i++) {
+            ruleMatches[i] = Counter.builder("screening.matches")
+                    .description("request bodies that matched the rule")
+                    .tag("rule", scanner.rules().get(i))
+                    .register(meterRegistry);
+        }
+        parseAllowances(allow);
+        if (enabled) {
+            logger.info("payload screening {} with {} rules, {} endpoint allowances",
+                    reject ? "rejecting" : "reporting", scanner.rules().size(), allowances.size());
+        }
+    }
+
+    private void parseAllowances(List<String> allow) {
+        Map<String, Long> byPattern = new HashMap<>();
+        for (String entry : allow) {
+            String value = entry.trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            int separator = value.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("app-screening-allow entry is not pattern:rules: " + value);
+            }
+            String rules = value.substring(separator + 1).trim();
+            long mask = "*".equals(rules) ? allRules : scanner.mask(Arrays.asList(rules.split(";")));
+            byPattern.merge(value.substring(0, separator).trim(), mask, (a, b) -> a | b);
+        }
+        byPattern.forEach((pattern, mask) -> allowances.add(new Allowance(RouteTable.of(pattern), mask)));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        if (!enabled || allRules == 0) {
+            return true;
+        }
+        //no body to read; a decrypted body has no length (-1) and is screened
+        String method = request.getMethod();
+        return request.getContentLengthLong() == 0 || HttpMethod.GET.matches(method)
+                || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method)
+                || isParsedByContainer(request.getContentType());
+    }
+
+    //bodies read through getParameter / getParts, which never go through the wrapper
+    static boolean isParsedByContainer(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith(MediaType.APPLICATION_FORM_URLENCODED_VALUE) || type.startsWith("multipart/");
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        long checked = allRules & ~allowed(request);
+        if (checked == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        PayloadScanner.Scan scan = scanner.newScan();
+        ScreeningRequestWrapper screening = new ScreeningRequestWrapper(request, scan, reject ? checked : 0, bufferPool);
+        try {
+            long length = request.getContentLengthLong();
+            screening.prefetch(length >= 0 && length < prefetchBytes ? (int) length + 1 : prefetchBytes);
+            if (reject && (scan.matched() & checked) != 0) {
+                report(request, scan, checked, true);
+                writeRejection(request, response);
+                return;
+            }
+            filterChain.doFilter(screening, response);
+            report(request, scan, checked, screening.isRejected());
+        } finally {
+            screening.release();
+        }
+    }
+
+    private long allowed(HttpServletRequest request) {
+        long allowed = 0;
+        for (Allowance allowance : allowances) {
+            if (allowance.routes.matches(request)) {
+                allowed |= allowance.rules;
+            }
+        }
+        return allowed;
+    }
+
+    private void report(HttpServletRequest request, PayloadScanner.Scan scan, long checked, boolean wasRejected) {
+        scannedBytes.increment(scan.scanned());
+        long hits = scan.matched() & checked;
+        if (hits == 0) {
+            clean.increment();
+            return;
+        }
+        (wasRejected ? rejected : matched).increment();
+        for (int i = 0; i < ruleMatches.length; i++) {
+            if ((hits & 1L << i) != 0) {
+                ruleMatches[i].increment();
+            }
+        }
+        logger.warn("request body of {} {} matched screening rules {}{}", request.getMethod(),
+                request.getRequestURI(), scanner.rules(hits), wasRejected ? ", rejected" : "");
+    }
+
+    private void writeRejection(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                new ErrorDetails(new Date(), REJECTED_MESSAGE, "uri=" + request.getRequestURI()));
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("screening.requests")
+                .description("request bodies screened, by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Allowance(RouteTable routes, long rules) {
+    }
+}
@@ -0,0 +1,163 @@
+package com.alibou.security.screening;
+
+import com.alibou.security.config.BufferPool;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * the body as the application sees it, unchanged, with every byte run through the screening automaton once.
+ * prefetch() reads the start of the body into a pooled buffer and scans it before the request goes any further,
+ * a body that fits is decided before anything binds it. the rest (large uploads) is scanned as the application
+ * reads it and reading fails with PayloadRejectedException once a blocked rule matches.
+ * a body that cannot be read (a decryption failure, say) fails the application's read as it would have without
+ * screening, so it gets the same 400.
+ */
+class ScreeningRequestWrapper extends HttpServletRequestWrapper {
+
+    private final PayloadScanner.Scan scan;
+    private final long blocked;
+    private final BufferPool bufferPool;
+    private ByteBuffer prefetched;
+    private ScreenedInputStream inputStream;
+    private BufferedReader reader;
+    private boolean rejected;
+    private boolean released;
+    private IOException prefetchFailure;
+
+    ScreeningRequestWrapper(HttpServletRequest request, PayloadScanner.Scan scan, long blocked, BufferPool bufferPool) {
+        super(request);
+        this.scan = scan;
+        this.blocked = blocked;
+        this.bufferPool = bufferPool;
+    }
+
+    //true when the whole body was read
+    boolean prefetch(int limit) throws IOException {
+        prefetched = bufferPool.acquire(limit);
+        int read;
+        try {
+            read = BufferPool.read(super.getInputStream(), prefetched, limit);
+        } catch (IOException e) {
+            prefetchFailure = e;
+            read = 0;
+        }
+        prefetched.flip();
+        scan.update(prefetched);
+        return read < limit;
+    }
+
+    boolean isRejected() {
+        return rejected;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (reader != null) {
+            throw new IllegalStateException("getReader() has already been called for this request");
+        }
+        return open();
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (reader == null) {
+            if (inputStream != null) {
+                throw new IllegalStateException("getInputStream() has already been called for this request");
+            }
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            reader = new BufferedReader(new InputStreamReader(open(), charset));
+        }
+        return reader;
+    }
+
+    void release() {
+        bufferPool.release(prefetched);
+        prefetched = null;
+        released = true;
+    }
+
+    private ScreenedInputStream open() throws IOException {
+        if (inputStream == null) {
+            inputStream = new ScreenedInputStream(super.getInputStream());
+        }
+        return inputStream;
+    }
+
+    private final class ScreenedInputStream extends ServletInputStream {
+
+        private final ServletInputStream source;
+        private boolean finished;
+
+        private ScreenedInputStream(ServletInputStream source) {
+            this.source = source;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (prefetched != null && prefetched.hasRemaining()) {
+                int n = Math.min(len, prefetched.remaining());
+                prefetched.get(b, off, n);
+                return n;
+            }
+            if (released) {
+                throw new IOException("screened request body already released");
+            }
+            if (prefetchFailure != null) {
+                finished = true;
+                throw prefetchFailure;
+            }
+            int n = source.read(b, off, len);
+            if (n == -1) {
+                finished = true;
+                return -1;
+            }
+            if ((scan.update(b, off, n) & blocked) != 0) {
+                rejected = true;
+                finished = true;
+                throw new PayloadRejectedException("request body contains content that is not allowed");
+            }
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return prefetched != null && prefetched.hasRemaining() ? prefetched.remaining() : source.available();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        //blocking reads only, like the rest of the application
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new UnsupportedOperationException("non-blocking reads of screened requests are not supported");
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.alibou.security.service;
+
+import com.alibou.security.dto.ServiceFlagsSnapshot;
+
+public interface ServiceFlagService {
+    //STATUS of the service's row, 0 when there is none; served from memory
+    int flag(String service);
+
+    //flag == 1
+    boolean isOn(String service);
+
+    ServiceFlagsSnapshot snapshot();
+
+    //reloads from the primary database now
+    ServiceFlagsSnapshot refresh();
+}
@@ -0,0 +1,14 @@
+package com.alibou.security.service;
+
+import com.alibou.security.entity.User;
+
+public interface TokenService {
+    //stores a freshly issued access token
+    void saveUserToken(User user, String jwtToken);
+
+    //revokes every active token of the user and stores the new one, one user at a time
+    void replaceUserTokens(User user, String jwtToken);
+
+    //ends every session of the user: active tokens revoked and the token version bumped
+    void revokeAllUserTokens(Integer userId, String email);
+}
@@ -0,0 +1,11 @@
+package com.alibou.security.service;
+
+import com.alibou.security.dto.AuthenticatedUser;
+import com.alibou.security.dto.ChangePasswordRequest;
+
+public interface UserService {
+    //checks the current password, stores the new one and ends every session of the user
+    void changePassword(AuthenticatedUser principal, ChangePasswordRequest request);
+
+    void logoutAll(AuthenticatedUser principal);
+}
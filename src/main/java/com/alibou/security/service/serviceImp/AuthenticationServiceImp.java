@@ -1,19 +1,22 @@
 package com.alibou.security.service.serviceImp;
 
+import com.alibou.security.config.CachingUserDetailsService;
 import com.alibou.security.config.JwtService;
+import com.alibou.security.config.ReplicaReadFallback;
+import com.alibou.security.config.UserVersionRegistry;
+import com.alibou.security.config.VerifiedToken;
 import com.alibou.security.dto.AuthenticationRequest;
 import com.alibou.security.dto.AuthenticationResponse;
 import com.alibou.security.dto.RegisterRequest;
-import com.alibou.security.entity.Token;
 import com.alibou.security.enums.Role;
-import com.alibou.security.enums.TokenType;
 import com.alibou.security.exception.ApiException;
 import com.alibou.security.exception.UserNotFoundException;
-import com.alibou.security.repository.TokenRepository;
 import com.alibou.security.repository.UserRepository;
 import com.alibou.security.service.AuthenticationService;
+import com.alibou.security.service.TokenService;
 import com.alibou.security.entity.User;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
@@ -26,7 +29,6 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
 
@@ -38,7 +40,10 @@ public class AuthenticationServiceImp implements AuthenticationService {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
-    private final TokenRepository tokenRepository;
+    private final TokenService tokenService;
+    private final UserVersionRegistry userVersionRegistry;
+    private final CachingUserDetailsService cachingUserDetailsService;
+    private final ReplicaReadFallback replicaReadFallback;
 
     @Override
     public AuthenticationResponse register(RegisterRequest request) {
@@ -57,7 +62,8 @@ public class AuthenticationServiceImp implements AuthenticationService {
         var savedUser = userRepository.save(user);
         var jwtToken = jwtService.generateToken(user);
         var refreshToken = jwtService.generateRefreshToken(user);
-        saveUserToken(savedUser, jwtToken);
+        tokenService.saveUserToken(savedUser, jwtToken);
+        replicaReadFallback.written(savedUser.getEmail());
         return AuthenticationResponse.builder()
                 .message("User registered successfully!")
                 .build();
@@ -77,14 +83,19 @@ public class AuthenticationServiceImp implements AuthenticationService {
             throw new BadCredentialsException("Invalid email or password");
         }
 
-        var user = userRepository.findByEmail(request.getEmail())
+        //served from the cache the authentication manager just filled
+        var user = cachingUserDetailsService.findUser(request.getEmail())
                 .orElseThrow(() -> new UserNotFoundException(request.getEmail()));
+        if (jwtService.isStatelessRevocation()) {
+            //one session per user: the new version retires every token of the previous login
+            user.setTokenVersion(userVersionRegistry.bump(user.getId(), user.getEmail()));
+        }
 
         var jwtToken = jwtService.generateToken(user);
         var refreshToken = jwtService.generateRefreshToken(user);
-        revokeAllUserTokens(user);
-        cleanUpRevokedTokens();
-        saveUserToken(user, jwtToken);
+        tokenService.replaceUserTokens(user, jwtToken);
+        //the client's next requests read the new token and version from the primary until the replica has them
+        replicaReadFallback.written(user.getEmail());
         AuthenticationResponse authenticationResponse= AuthenticationResponse.builder()
                 .accessToken(jwtToken)
                 .refreshToken(refreshToken)
@@ -105,54 +116,43 @@ public class AuthenticationServiceImp implements AuthenticationService {
             return;
         }
         refreshToken = authHeader.substring(7);
-        userEmail = jwtService.extractUserName(refreshToken);
+        final VerifiedToken verifiedToken;
+        try {
+            verifiedToken = jwtService.verify(refreshToken);
+        } catch (JwtException | IllegalArgumentException e) {
+            return;
+        }
+        if (JwtService.TYPE_ACCESS.equals(verifiedToken.claim(JwtService.CLAIM_TYPE, String.class))) {
+            return;
+        }
+        //refresh tokens of an ended session (logout, logout-all, password change, newer login) are refused
+        Number userId = verifiedToken.claim(JwtService.CLAIM_USER_ID, Number.class);
+        Number version = verifiedToken.claim(JwtService.CLAIM_VERSION, Number.class);
+        if (jwtService.isStatelessRevocation() && userId != null && version != null
+                && !userVersionRegistry.isCurrent(userId.intValue(), version.intValue())) {
+            return;
+        }
+        userEmail = verifiedToken.subject();
         if (userEmail != null) {
-            var user = this.userRepository.findByEmail(userEmail)
+            var user = cachingUserDetailsService.findUser(userEmail)
                     .orElseThrow();
-            if (jwtService.isTokenValid(refreshToken, user)) {
+            if (jwtService.isTokenValid(verifiedToken, user)) {
+                var newRefreshToken = refreshToken;
+                if (jwtService.isStatelessRevocation()) {
+                    //the bump retires the previous access token, so the refresh token is rotated along with it
+                    user.setTokenVersion(userVersionRegistry.bump(user.getId(), user.getEmail()));
+                    newRefreshToken = jwtService.generateRefreshToken(user);
+                }
                 var accessToken = jwtService.generateToken(user);
-                revokeAllUserTokens(user);
-                saveUserToken(user, accessToken);
+                tokenService.replaceUserTokens(user, accessToken);
+                replicaReadFallback.written(user.getEmail());
                 var authResponse = AuthenticationResponse.builder()
                         .accessToken(accessToken)
-                        .refreshToken(refreshToken)
+                        .refreshToken(newRefreshToken)
                         .build();
                 new ObjectMapper().writeValue(response.getOutputStream(), authResponse);
             }
         }
     }
 
-    //saving token whenever user registers or logs inS
-    private void saveUserToken(User user, String jwtToken) {
-        var token = Token.builder()
-                .user(user)
-                .token(jwtToken)
-                .tokenType(TokenType.BEARER)
-                .revoked(false)
-                .expired(false)
-                .build();
-        tokenRepository.save(token);
-    }
-
-/*due to the above method i can create n number of tokens that are active which is not good
-i want a maximum of one token to be active at a given instance
-for that i wrote the below method
-*/
-    private void revokeAllUserTokens(User user){
-        var validUserTokens = tokenRepository.findAllValidTokensByUser(user.getId());
-        if(validUserTokens.isEmpty()){
-            return;
-        }
-        validUserTokens.forEach(t->{
-            t.setExpired(true);
-            t.setRevoked(true);
-        });
-        tokenRepository.saveAll(validUserTokens);
-    }
-
-    @Transactional
-    public void cleanUpRevokedTokens() {
-        tokenRepository.deleteAllRevokedTokens();
-    }
-
 }
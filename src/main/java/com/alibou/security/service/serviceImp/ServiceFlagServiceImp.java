@@ -0,0 +1,103 @@
+package com.alibou.security.service.serviceImp;
+
+import com.alibou.security.config.ReplicaRoutingDataSource;
+import com.alibou.security.dto.ServiceFlagsSnapshot;
+import com.alibou.security.dto.ServiceFlagsVersion;
+import com.alibou.security.entity.ServiceExtraFlag;
+import com.alibou.security.repository.ServiceExtraFlagRepository;
+import com.alibou.security.service.ServiceFlagService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * EXTERNAL_SERVICE_STATUS held in memory as one immutable snapshot.
+ * lookups read a volatile reference and an immutable map, no lock and no query. a reload builds a whole new
+ * snapshot and swaps the reference (copy on write), readers see either the old or the new one.
+ * every app-service-flags-check-ms the row count, version sum and highest id are compared (one aggregate query) and
+ * the rows are only read again when they differ; refresh() reloads right away.
+ * the check, its reload and the startup load all read the primary like refresh() does, so a lagging replica can never
+ * replace a newer snapshot; reloads are serialized so a slow one cannot either.
+ */
+@Service
+@RequiredArgsConstructor
+public class ServiceFlagServiceImp implements ServiceFlagService {
+
+    static Logger logger = LoggerFactory.getLogger(ServiceFlagServiceImp.class);
+
+    private final ServiceExtraFlagRepository serviceExtraFlagRepository;
+    private volatile ServiceFlagsSnapshot snapshot = ServiceFlagsSnapshot.EMPTY;
+
+    @PostConstruct
+    void load() {
+        try {
+            ReplicaRoutingDataSource.onPrimary(this::reload);
+            logger.info("loaded {} service flags", snapshot.flags().size());
+        } catch (DataAccessException e) {
+            //every flag reads 0 until the next check manages to load them
+            logger.warn("could not load service flags: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public int flag(String service) {
+        return snapshot.flag(service);
+    }
+
+    @Override
+    public boolean isOn(String service) {
+        return snapshot.flag(service) == 1;
+    }
+
+    @Override
+    public ServiceFlagsSnapshot snapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public ServiceFlagsSnapshot refresh() {
+        ServiceFlagsSnapshot loaded = ReplicaRoutingDataSource.onPrimary(this::reload);
+        logger.info("service flags refreshed, {} flags", loaded.flags().size());
+        return loaded;
+    }
+
+    @Scheduled(fixedDelayString = "${app-service-flags-check-ms}", initialDelayString = "${app-service-flags-check-ms}")
+    public void checkForChanges() {
+        try {
+            if (ReplicaRoutingDataSource.onPrimary(this::reloadIfChanged)) {
+                logger.info("service flags changed, reloaded {} flags", snapshot.flags().size());
+            }
+        } catch (DataAccessException e) {
+            logger.warn("service flag check failed, keeping the flags loaded at {}: {}", snapshot.loadedAt(), e.getMessage());
+        }
+    }
+
+    private boolean reloadIfChanged() {
+        if (serviceExtraFlagRepository.findVersion().equals(snapshot.version())) {
+            return false;
+        }
+        reload();
+        return true;
+    }
+
+    private synchronized ServiceFlagsSnapshot reload() {
+        //version first: a change between the two reads leaves an older version, so the next check loads again
+        ServiceFlagsVersion version = serviceExtraFlagRepository.findVersion();
+        Map<String, Integer> flags = new HashMap<>();
+        for (ServiceExtraFlag row : serviceExtraFlagRepository.findAll()) {
+            if (row.getService() != null) {
+                flags.put(row.getService(), row.getFlag());
+            }
+        }
+        snapshot = new ServiceFlagsSnapshot(Map.copyOf(flags), version, Instant.now());
+        return snapshot;
+    }
+}
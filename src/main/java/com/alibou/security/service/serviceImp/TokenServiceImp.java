@@ -0,0 +1,78 @@
+package com.alibou.security.service.serviceImp;
+
+import com.alibou.security.config.JwtService;
+import com.alibou.security.config.TokenRevocationRegistry;
+import com.alibou.security.config.TokenWriteBehindQueue;
+import com.alibou.security.config.UserVersionRegistry;
+import com.alibou.security.entity.Token;
+import com.alibou.security.entity.User;
+import com.alibou.security.enums.TokenType;
+import com.alibou.security.repository.TokenRepository;
+import com.alibou.security.repository.UserRepository;
+import com.alibou.security.service.TokenService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+@RequiredArgsConstructor
+public class TokenServiceImp implements TokenService {
+
+    private final TokenRepository tokenRepository;
+    private final UserRepository userRepository;
+    private final JwtService jwtService;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
+    private final TokenWriteBehindQueue tokenWriteBehindQueue;
+    private final UserVersionRegistry userVersionRegistry;
+
+    //saving token whenever user registers or logs in
+    @Override
+    public void saveUserToken(User user, String jwtToken) {
+        //verifying our own token also warms the verified-token cache for the client's first call
+        var verifiedToken = jwtService.verify(jwtToken);
+        if (tokenWriteBehindQueue.offer(user.getId(), verifiedToken.tokenHash(), verifiedToken.expiration().toInstant())) {
+            return;
+        }
+        var token = Token.builder()
+                .user(user)
+                .tokenHash(verifiedToken.tokenHash())
+                .expiresAt(verifiedToken.expiration().toInstant())
+                .tokenType(TokenType.BEARER)
+                .revoked(false)
+                .expired(false)
+                .build();
+        tokenRepository.save(token);
+    }
+
+    /*
+     * a maximum of one token is active per user.
+     * the user row is locked first so two logins of the same user cannot both revoke and then both insert,
+     * then all active tokens are revoked with one update statement instead of loading and saving each row.
+     * tokens still waiting in the write-behind queue are revoked before the table (see TokenWriteBehindQueue).
+     */
+    @Override
+    @Transactional
+    public void replaceUserTokens(User user, String jwtToken) {
+        userRepository.findLockedById(user.getId());
+        revokeActiveTokens(user.getId());
+        saveUserToken(user, jwtToken);
+    }
+
+    //the version bump alone is enough in stateless mode, the rows are still revoked for the audit trail
+    @Override
+    @Transactional
+    public void revokeAllUserTokens(Integer userId, String email) {
+        userRepository.findLockedById(userId);
+        revokeActiveTokens(userId);
+        userVersionRegistry.bump(userId, email);
+    }
+
+    private void revokeActiveTokens(Integer userId) {
+        tokenWriteBehindQueue.revokePending(userId);
+        var activeTokens = tokenRepository.findActiveTokensByUser(userId);
+        if (!activeTokens.isEmpty()) {
+            tokenRepository.revokeAllActiveTokensByUser(userId);
+            tokenRevocationRegistry.revokeAll(activeTokens);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.alibou.security.service.serviceImp;
+
+import com.alibou.security.config.ReplicaReadFallback;
+import com.alibou.security.config.UserChangedEvent;
+import com.alibou.security.dto.AuthenticatedUser;
+import com.alibou.security.dto.ChangePasswordRequest;
+import com.alibou.security.exception.ApiException;
+import com.alibou.security.exception.UserNotFoundException;
+import com.alibou.security.repository.UserRepository;
+import com.alibou.security.service.TokenService;
+import com.alibou.security.service.UserService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Service
+@RequiredArgsConstructor
+public class UserServiceImp implements UserService {
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final TokenService tokenService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReplicaReadFallback replicaReadFallback;
+    private final TransactionTemplate transactionTemplate;
+
+    //both bcrypt calls run before the transaction, it only holds a connection for the writes
+    //password, revocation and version bump commit together; the UserChangedEvent listeners run after the commit
+    @Override
+    public void changePassword(AuthenticatedUser principal, ChangePasswordRequest request) {
+        var user = replicaReadFallback.find(principal.email(),
+                        () -> userRepository.findById(principal.id()),
+                        () -> userRepository.findById(principal.id()))
+                .orElseThrow(() -> new UserNotFoundException(principal.email()));
+        if (!passwordEncoder.matches(request.getCurrentPassword(), user.getPassword())) {
+            throw new ApiException(HttpStatus.BAD_REQUEST, "Current password is incorrect");
+        }
+        String encoded = passwordEncoder.encode(request.getNewPassword());
+        transactionTemplate.executeWithoutResult(status -> {
+            userRepository.updatePassword(user.getEmail(), encoded);
+            eventPublisher.publishEvent(new UserChangedEvent(user.getId(), user.getEmail()));
+            tokenService.revokeAllUserTokens(user.getId(), user.getEmail());
+        });
+        replicaReadFallback.written(user.getEmail());
+    }
+
+    @Override
+    public void logoutAll(AuthenticatedUser principal) {
+        tokenService.revokeAllUserTokens(principal.id(), principal.email());
+        replicaReadFallback.written(principal.email());
+    }
+}
@@ -0,0 +1,133 @@
+package com.alibou.security.benchmark;
+
+import com.alibou.security.encryption.EncryptionEngine;
+import com.alibou.security.encryption.EncryptionKeyRing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * messages per second through EncryptionEngine vs the setup the old InternalEncryptionDecryption did per call
+ * (SecretKeySpec from the property string, hex iv parsed again, Cipher.getInstance), on a json body of payloadSize bytes.
+ * perCallGcm is the engine's algorithm (per-message key from a salt, aes-gcm) with the old per-call setup, so the gap
+ * to engine is the pooling alone.
+ * run: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.alibou.security.benchmark.EncryptionEngineBenchmark
+ * (or run main from the ide)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class EncryptionEngineBenchmark {
+
+    private static final String KEY = "RRzcaBQoCV9+mSvFX1n6sw==";
+    private static final String IV = "41677265655961214023243132333435";
+    private static final SecureRandom random = new SecureRandom();
+
+    @Param({"256", "4096"})
+    private int payloadSize;
+
+    private String payload;
+    private EncryptionEngine engine;
+    private String engineMessage;
+    private String legacyMessage;
+
+    @Setup
+    public void setup() throws Exception {
+        StringBuilder json = new StringBuilder("{\"data\":\"");
+        while (json.length() < payloadSize - 2) {
+            json.append((char) ('a' + json.length() % 26));
+        }
+        payload = json.append("\"}").toString();
+        engine = new EncryptionEngine(new EncryptionKeyRing(List.of("1:" + KEY), 1));
+        engineMessage = engine.encryptText(payload);
+        legacyMessage = legacyEncrypt(payload);
+    }
+
+    @Benchmark
+    public String legacyCbcEncrypt() throws Exception {
+        return legacyEncrypt(payload);
+    }
+
+    @Benchmark
+    public String legacyCbcDecrypt() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(KEY.getBytes(StandardCharsets.UTF_8), "AES"),
+                new IvParameterSpec(hexIv(IV)));
+        return new String(cipher.doFinal(Base64.getDecoder().decode(legacyMessage)), StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String perCallGcmEncrypt() throws Exception {
+        byte[] salt = new byte[16];
+        byte[] nonce = new byte[12];
+        random.nextBytes(salt);
+        random.nextBytes(nonce);
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(salt, "HmacSHA256"));
+        mac.init(new SecretKeySpec(mac.doFinal(Base64.getDecoder().decode(KEY)), "HmacSHA256"));
+        mac.update("aes-gcm message".getBytes(StandardCharsets.US_ASCII));
+        mac.update((byte) 1);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(mac.doFinal(), 0, 16, "AES"),
+                new GCMParameterSpec(128, nonce));
+        return Base64.getEncoder().encodeToString(cipher.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    public String engineEncrypt() {
+        return engine.encryptText(payload);
+    }
+
+    @Benchmark
+    public String engineDecrypt() throws Exception {
+        return engine.decryptText(engineMessage);
+    }
+
+    private static String legacyEncrypt(String message) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(KEY.getBytes(StandardCharsets.UTF_8), "AES"),
+                new IvParameterSpec(hexIv(IV)));
+        return Base64.getEncoder().encodeToString(cipher.doFinal(message.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static byte[] hexIv(String iv) {
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 16; i++) {
+            bytes[i] = (byte) Integer.parseInt(iv.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EncryptionEngineBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,90 @@
+package com.alibou.security.benchmark;
+
+import com.alibou.security.config.CompiledPreAuthorizeManager;
+import com.alibou.security.demo.AdminController;
+import com.alibou.security.dto.AuthenticatedUser;
+import com.alibou.security.enums.Role;
+import org.aopalliance.intercept.MethodInvocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.method.PreAuthorizeAuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/*
+ * per call cost of the @PreAuthorize check on AdminController.get(), spel vs CompiledPreAuthorizeManager.
+ * only the authorization decision is measured, not the proxy or the web layer.
+ * run: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.alibou.security.benchmark.MethodSecurityBenchmark
+ * (or run main from the ide)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MethodSecurityBenchmark {
+
+    private PreAuthorizeAuthorizationManager spel;
+    private CompiledPreAuthorizeManager compiled;
+    private MethodInvocation invocation;
+    private Supplier<Authentication> admin;
+    private Supplier<Authentication> manager;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        spel = new PreAuthorizeAuthorizationManager();
+        compiled = new CompiledPreAuthorizeManager(true);
+        invocation = new SimpleMethodInvocation(new AdminController(), AdminController.class.getMethod("get"));
+        admin = authentication(Role.ADMIN);
+        manager = authentication(Role.MANAGER);
+    }
+
+    private static Supplier<Authentication> authentication(Role role) {
+        AuthenticatedUser user = new AuthenticatedUser(1, role.name().toLowerCase() + "@mail.com", role);
+        Authentication authentication = new UsernamePasswordAuthenticationToken(user, null, user.authorities());
+        return () -> authentication;
+    }
+
+    @Benchmark
+    public AuthorizationDecision spelGranted() {
+        return spel.check(admin, invocation);
+    }
+
+    @Benchmark
+    public AuthorizationDecision spelDenied() {
+        return spel.check(manager, invocation);
+    }
+
+    @Benchmark
+    public AuthorizationDecision compiledGranted() {
+        return compiled.check(admin, invocation);
+    }
+
+    @Benchmark
+    public AuthorizationDecision compiledDenied() {
+        return compiled.check(manager, invocation);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MethodSecurityBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
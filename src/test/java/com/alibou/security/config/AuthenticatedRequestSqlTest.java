@@ -0,0 +1,114 @@
+package com.alibou.security.config;
+
+import com.alibou.security.H2TestDatabase;
+import com.alibou.security.dto.AuthenticationRequest;
+import com.alibou.security.dto.RegisterRequest;
+import com.alibou.security.dto.TokenState;
+import com.alibou.security.repository.TokenRepository;
+import com.alibou.security.service.AuthenticationService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//statements issued while authenticating one request, counted with hibernate statistics
+@SpringBootTest
+@AutoConfigureMockMvc
+@H2TestDatabase
+@TestPropertySource(properties = "spring.jpa.show-sql=false")
+class AuthenticatedRequestSqlTest {
+
+    private static final String SECURED_URL = "/api/v1/demo-controller";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private AuthenticationService authenticationService;
+    @Autowired
+    private TokenRepository tokenRepository;
+    @Autowired
+    private CachingUserDetailsService cachingUserDetailsService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private String email;
+    private String accessToken;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        email = UUID.randomUUID() + "@mail.com";
+        authenticationService.register(RegisterRequest.builder()
+                .firstName("Sql")
+                .lastName("Count")
+                .email(email)
+                .password("password")
+                .build());
+        accessToken = authenticationService.authenticate(AuthenticationRequest.builder()
+                .email(email)
+                .password("password")
+                .build()).getAccessToken();
+    }
+
+    @Test
+    void requestWithWarmUserCacheIssuesNoSql() throws Exception {
+        statistics.clear();
+
+        mockMvc.perform(get(SECURED_URL).header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken))
+                .andExpect(status().isOk());
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void requestWithColdUserCacheSelectsTheUserOnce() throws Exception {
+        cachingUserDetailsService.onUserChanged(new UserChangedEvent(null, email));
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        statistics.clear();
+
+        mockMvc.perform(get(SECURED_URL).header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken))
+                .andExpect(status().isOk());
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        //the user's tokens are not touched
+        assertThat(statistics.getCollectionLoadCount()).isZero();
+    }
+
+    @Test
+    void tokenStateLookupLoadsNoEntity() {
+        statistics.clear();
+
+        TokenState state = tokenRepository.findStateByTokenHash(TokenHasher.hash(accessToken)).orElseThrow();
+
+        assertThat(state.isActive()).isTrue();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void logoutIsOneSelectAndOneUpdate() throws Exception {
+        statistics.clear();
+
+        mockMvc.perform(post("/api/v1/auth/logout").header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken))
+                .andExpect(status().isOk());
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(tokenRepository.findStateByTokenHash(TokenHasher.hash(accessToken)).orElseThrow().isActive()).isFalse();
+    }
+}
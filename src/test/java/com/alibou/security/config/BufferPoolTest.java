@@ -0,0 +1,106 @@
+package com.alibou.security.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BufferPoolTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private BufferPool pool;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        pool = new BufferPool(1024, 8192, 2, false, meterRegistry);
+    }
+
+    @Test
+    void releasedBufferIsHandedOutAgain() {
+        ByteBuffer first = pool.acquire(1000);
+        assertThat(first.capacity()).isEqualTo(1024);
+        first.put((byte) 1);
+        pool.release(first);
+
+        ByteBuffer second = pool.acquire(600);
+        assertThat(second).isSameAs(first);
+        assertThat(second.position()).isZero();
+        assertThat(acquired("hit")).isEqualTo(1);
+        assertThat(acquired("miss")).isEqualTo(1);
+    }
+
+    @Test
+    void idleBuffersAreBoundedPerClass() {
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            buffers.add(pool.acquire(4096));
+        }
+        buffers.forEach(pool::release);
+
+        assertThat(meterRegistry.get("buffers.pool.released").tag("result", "pooled").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("buffers.pool.released").tag("result", "discarded").counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("buffers.pool.idle.bytes").gauge().value()).isEqualTo(2 * 4096);
+        assertThat(meterRegistry.get("buffers.pool.outstanding").gauge().value()).isZero();
+    }
+
+    @Test
+    void oversizeRequestIsNotPooled() {
+        ByteBuffer big = pool.acquire(10_000);
+        pool.release(big);
+
+        assertThat(acquired("oversize")).isEqualTo(1);
+        assertThat(meterRegistry.get("buffers.pool.idle.bytes").gauge().value()).isZero();
+    }
+
+    @Test
+    void capturedBodyGrowsAndIsHandedOnWithoutCopy() throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        CapturingResponseWrapper capturing = new CapturingResponseWrapper(response, pool, 1024);
+        byte[] body = "x".repeat(3000).getBytes(StandardCharsets.UTF_8);
+        capturing.getOutputStream().write(body, 0, body.length);
+        capturing.setContentLength(body.length);
+
+        ByteBuffer captured = capturing.body();
+        assertThat(captured.remaining()).isEqualTo(body.length);
+        assertThat(captured.isReadOnly()).isTrue();
+        assertThat(response.getContentAsByteArray()).isEmpty();
+
+        capturing.writeTo(response.getOutputStream());
+        capturing.release();
+        assertThat(response.getContentAsByteArray()).isEqualTo(body);
+        assertThat(response.getHeader("Content-Length")).isNull();
+        assertThat(meterRegistry.get("buffers.pool.outstanding").gauge().value()).isZero();
+    }
+
+    @Test
+    void stagedBodyIsPassedOnInSegments() throws IOException {
+        List<Integer> segments = new ArrayList<>();
+        CapturingResponseWrapper capturing = new CapturingResponseWrapper(new MockHttpServletResponse(), pool, 1000) {
+            @Override
+            protected Stage openStage() {
+                return (segment, last) -> {
+                    segments.add(last ? -segment.remaining() : segment.remaining());
+                    segment.position(segment.limit());
+                };
+            }
+        };
+        capturing.getOutputStream().write(new byte[2500], 0, 2500);
+        capturing.finish();
+        capturing.release();
+
+        assertThat(segments).containsExactly(1000, 1000, -500);
+    }
+
+    private double acquired(String result) {
+        return meterRegistry.get("buffers.pool.acquired").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,83 @@
+package com.alibou.security.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.prepost.PostAuthorize;
+import org.springframework.security.access.prepost.PostFilter;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.access.prepost.PreFilter;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//prePostEnabled is off, so every prePost annotation has to be covered by an advisor of SecurityConfiguration
+class MethodSecurityAdvisorsTest {
+
+    private Documents documents;
+
+    @BeforeEach
+    void setUp() {
+        ProxyFactory factory = new ProxyFactory(new Documents());
+        factory.addAdvisor(SecurityConfiguration.preAuthorizeAdvisor(new CompiledPreAuthorizeManager(true)));
+        factory.addAdvisor(SecurityConfiguration.postAuthorizeAdvisor());
+        factory.addAdvisor(SecurityConfiguration.preFilterAdvisor());
+        factory.addAdvisor(SecurityConfiguration.postFilterAdvisor());
+        factory.setProxyTargetClass(true);
+        documents = (Documents) factory.getProxy();
+        SecurityContextHolder.getContext()
+                .setAuthentication(new TestingAuthenticationToken("jane", null, "ROLE_USER"));
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void preAuthorizeIsEnforced() {
+        assertThatThrownBy(() -> documents.adminOnly()).isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void postAuthorizeIsEnforced() {
+        assertThat(documents.owned("jane")).isEqualTo("jane");
+        assertThatThrownBy(() -> documents.owned("john")).isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void preAndPostFilterAreApplied() {
+        assertThat(documents.kept(new ArrayList<>(List.of("jane", "john")))).containsExactly("jane");
+        assertThat(documents.visible()).containsExactly("jane");
+    }
+
+    static class Documents {
+
+        @PreAuthorize("hasRole('ADMIN')")
+        public String adminOnly() {
+            return "admin";
+        }
+
+        @PostAuthorize("returnObject == authentication.name")
+        public String owned(String owner) {
+            return owner;
+        }
+
+        @PreFilter("filterObject == authentication.name")
+        public List<String> kept(List<String> owners) {
+            return owners;
+        }
+
+        @PostFilter("filterObject == authentication.name")
+        public List<String> visible() {
+            return new ArrayList<>(List.of("jane", "john"));
+        }
+    }
+}
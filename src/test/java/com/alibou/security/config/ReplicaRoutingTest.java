@@ -0,0 +1,167 @@
+package com.alibou.security.config;
+
+import com.alibou.security.H2TestDatabase;
+import com.alibou.security.entity.Token;
+import com.alibou.security.entity.User;
+import com.alibou.security.enums.Role;
+import com.alibou.security.enums.TokenType;
+import com.alibou.security.repository.TokenRepository;
+import com.alibou.security.repository.UserRepository;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+//two in-memory h2 databases stand in for the primary and the replica, nothing is replicated between them
+@DataJpaTest
+@H2TestDatabase
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ReplicaDataSourceConfiguration.class, ReplicaReadFallback.class})
+@TestPropertySource(properties = {
+        "app-datasource-replica-enabled=true",
+        "app-datasource-replica-url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;MODE=MySQL;NON_KEYWORDS=USER",
+        "app-datasource-replica-username=sa",
+        "app-datasource-replica-password=",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReplicaRoutingTest {
+
+    private static final String EMAIL = "replica@mail.com";
+    private static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;MODE=MySQL;NON_KEYWORDS=USER";
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TokenRepository tokenRepository;
+    @Autowired
+    private ReplicaReadFallback replicaReadFallback;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+    //the replica pool is read-only, "replication" goes through a connection of its own
+    private final JdbcTemplate replication = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @BeforeEach
+    void setUp() {
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(replicaDataSource);
+        //hibernate created the schema on the primary only, copy it over
+        replication.execute("DROP ALL OBJECTS");
+        primary.queryForList("SCRIPT NODATA", String.class).forEach(replication::execute);
+        primary.update("delete from token");
+        primary.update("delete from user");
+    }
+
+    @Test
+    void writesGoToThePrimary() {
+        userRepository.save(user(Role.USER));
+
+        assertThat(primary.queryForObject("select count(*) from user", Integer.class)).isEqualTo(1);
+        assertThat(replica.queryForObject("select count(*) from user", Integer.class)).isZero();
+    }
+
+    @Test
+    void readOnlyLookupsGoToTheReplica() {
+        replicate(Role.USER);
+
+        assertThat(userRepository.existsByEmail(EMAIL)).isTrue();
+        assertThat(userRepository.findPrincipalByEmail(EMAIL)).isPresent();
+    }
+
+    @Test
+    void readsInsideAWriteTransactionGoToThePrimary() {
+        replicate(Role.USER);
+
+        Boolean exists = new TransactionTemplate(transactionManager).execute(status -> userRepository.existsByEmail(EMAIL));
+
+        assertThat(exists).isFalse();
+    }
+
+    @Test
+    void replicaMissIsRetriedOnThePrimary() {
+        //registered a moment ago, not replicated yet
+        userRepository.save(user(Role.USER));
+
+        assertThat(userRepository.findByEmail(EMAIL)).isEmpty();
+        assertThat(replicaReadFallback.find(EMAIL,
+                () -> userRepository.findByEmail(EMAIL),
+                () -> userRepository.findUncachedByEmail(EMAIL))).isPresent();
+    }
+
+    @Test
+    void recentWriterReadsThePrimary() {
+        //the replica still has the row as it was before the user's last write
+        userRepository.save(user(Role.ADMIN));
+        replicate(Role.USER);
+
+        assertThat(replicaReadFallback.read(EMAIL, () -> userRepository.findPrincipalByEmail(EMAIL)).orElseThrow().role())
+                .isEqualTo(Role.USER);
+
+        replicaReadFallback.written(EMAIL);
+
+        assertThat(replicaReadFallback.read(EMAIL, () -> userRepository.findPrincipalByEmail(EMAIL)).orElseThrow().role())
+                .isEqualTo(Role.ADMIN);
+    }
+
+    @Test
+    void logoutFindsATokenTheReplicaHasNotSeenYet() {
+        //logged in a moment ago, the token row is on the primary only
+        User user = userRepository.save(user(Role.USER));
+        tokenRepository.save(Token.builder().user(user).tokenHash(TokenHasher.hash("fresh.jwt"))
+                .tokenType(TokenType.BEARER).build());
+        LogoutService logoutService = new LogoutService(tokenRepository, mock(TokenRevocationRegistry.class),
+                mock(TokenWriteBehindQueue.class), mock(JwtService.class), mock(UserVersionRegistry.class));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer fresh.jwt");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        logoutService.logout(request, response, null);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+        assertThat(primary.queryForObject("select revoked from token", Boolean.class)).isTrue();
+    }
+
+    private static User user(Role role) {
+        return User.builder()
+                .firstName("Replica")
+                .lastName("User")
+                .email(EMAIL)
+                .password("{bcrypt}hash")
+                .role(role)
+                .build();
+    }
+
+    private void replicate(Role role) {
+        replication.update("insert into user (first_name, last_name, email, password, role, token_version) values (?, ?, ?, ?, ?, 0)",
+                "Replica", "User", EMAIL, "{bcrypt}hash", role.name());
+    }
+}
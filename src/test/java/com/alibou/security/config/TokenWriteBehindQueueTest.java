@@ -0,0 +1,69 @@
+package com.alibou.security.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+//plain jdbc against h2, only the token table the queue writes to
+class TokenWriteBehindQueueTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private JdbcTemplate jdbcTemplate;
+    private TokenWriteBehindQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:write-behind;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table token (id int auto_increment primary key, token_hash varchar(64) unique,"
+                + " token_type varchar(20), expired boolean, revoked boolean, expires_at timestamp, user_id int)");
+        //flushed by the test only
+        queue = new TokenWriteBehindQueue(jdbcTemplate, new DataSourceTransactionManager(dataSource), mock(TokenRevocationRegistry.class),
+                true, 10, 100, 3_600_000, 3, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("drop table token");
+    }
+
+    @Test
+    void badRowDoesNotHoldBackTheBatchAndIsDroppedAfterMaxAttempts() {
+        jdbcTemplate.update("insert into token (token_hash, user_id) values ('dup', 1)");
+        Instant expiresAt = Instant.now().plusSeconds(60);
+        queue.offer(1, "a", expiresAt);
+        queue.offer(1, "dup", expiresAt);
+        queue.offer(1, "b", expiresAt);
+
+        queue.flush();
+
+        assertThat(rows()).isEqualTo(3);
+        assertThat(dropped()).isZero();
+
+        queue.flush();
+        queue.flush();
+
+        assertThat(dropped()).isEqualTo(1);
+        queue.offer(1, "c", expiresAt);
+        queue.flush();
+        assertThat(rows()).isEqualTo(4);
+        assertThat(meterRegistry.get("tokens.write-behind.pending").gauge().value()).isZero();
+    }
+
+    private int rows() {
+        return jdbcTemplate.queryForObject("select count(*) from token", Integer.class);
+    }
+
+    private double dropped() {
+        return meterRegistry.get("tokens.write-behind.dropped").counter().count();
+    }
+}
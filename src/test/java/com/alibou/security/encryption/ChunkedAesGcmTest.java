@@ -0,0 +1,99 @@
+package com.alibou.security.encryption;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChunkedAesGcmTest {
+
+    private static final int CHUNK_SIZE = 8;
+    private static final int HEADER_LENGTH = 2 + ChunkedAesGcm.SALT_LENGTH;
+
+    private final EncryptionKeyRing keyRing = new EncryptionKeyRing(List.of("1:RRzcaBQoCV9+mSvFX1n6sw=="), 1);
+
+    @Test
+    void payloadSpanningChunksRoundTrips() throws IOException {
+        byte[] payload = "a payload over several chunks".getBytes();
+
+        assertThat(decrypt(encrypt(payload))).isEqualTo(payload);
+        assertThat(decrypt(encrypt(new byte[0]))).isEmpty();
+    }
+
+    //every chunk of every stream under one ring key gets a (stream key, nonce) pair of its own
+    @Test
+    void streamsNeverShareKeyAndNonce() throws IOException {
+        byte[] payload = new byte[CHUNK_SIZE * 3];
+        Set<String> seen = new HashSet<>();
+        int chunks = 0;
+        for (int stream = 0; stream < 500; stream++) {
+            byte[] message = encrypt(payload);
+            byte[] salt = Arrays.copyOfRange(message, 2, HEADER_LENGTH);
+            SecretKey key = keyRing.key(1, salt, ChunkedAesGcm.STREAM_KEY_INFO);
+            ByteBuffer chunk = ByteBuffer.wrap(message).position(HEADER_LENGTH);
+            for (int counter = 0; chunk.hasRemaining(); counter++) {
+                int value = chunk.getInt();
+                chunk.position(chunk.position() + (value & ~ChunkedAesGcm.LAST_CHUNK));
+                byte[] nonce = ChunkedAesGcm.nonce(counter, (value & ChunkedAesGcm.LAST_CHUNK) != 0);
+                assertThat(seen.add(Arrays.toString(key.getEncoded()) + Arrays.toString(nonce))).isTrue();
+                chunks++;
+            }
+        }
+        assertThat(chunks).isEqualTo(500 * 3);
+    }
+
+    @Test
+    void sameSaltDerivesSameKeyAndOtherSaltDoesNot() {
+        byte[] salt = new byte[ChunkedAesGcm.SALT_LENGTH];
+        byte[] other = salt.clone();
+        other[0] = 1;
+
+        SecretKey key = keyRing.activeKey(salt, ChunkedAesGcm.STREAM_KEY_INFO);
+
+        assertThat(key.getEncoded()).hasSize(16)
+                .isEqualTo(keyRing.key(1, salt, ChunkedAesGcm.STREAM_KEY_INFO).getEncoded())
+                .isNotEqualTo(keyRing.activeKey(other, ChunkedAesGcm.STREAM_KEY_INFO).getEncoded())
+                .isNotEqualTo(Base64.getDecoder().decode("RRzcaBQoCV9+mSvFX1n6sw=="));
+    }
+
+    @Test
+    void changedSaltFailsAuthentication() throws IOException {
+        byte[] message = encrypt("secret".getBytes());
+        message[2] ^= 1;
+
+        assertThatThrownBy(() -> decrypt(message)).isInstanceOf(PayloadDecryptionException.class);
+    }
+
+    @Test
+    void previousVersionIsRefused() throws IOException {
+        byte[] message = encrypt("secret".getBytes());
+        message[0] = 1;
+
+        assertThatThrownBy(() -> decrypt(message)).isInstanceOf(PayloadDecryptionException.class)
+                .hasMessageContaining("version");
+    }
+
+    private byte[] encrypt(byte[] payload) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream encrypting = ChunkedAesGcm.encrypt(out, keyRing, CHUNK_SIZE)) {
+            encrypting.write(payload);
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] decrypt(byte[] message) throws IOException {
+        return ChunkedAesGcm.decrypt(new ByteArrayInputStream(message), keyRing, CHUNK_SIZE).readAllBytes();
+    }
+}
@@ -0,0 +1,52 @@
+package com.alibou.security.encryption;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EncryptionEngineTest {
+
+    private final EncryptionEngine engine =
+            new EncryptionEngine(new EncryptionKeyRing(List.of("1:RRzcaBQoCV9+mSvFX1n6sw=="), 1));
+
+    @Test
+    void textRoundTrips() throws PayloadDecryptionException {
+        String message = engine.encryptText("{\"data\":\"secret\"}");
+
+        assertThat(engine.decryptText(message)).isEqualTo("{\"data\":\"secret\"}");
+    }
+
+    //the salt picks the message key, two messages never share one
+    @Test
+    void everyMessageHasItsOwnSalt() {
+        byte[] first = engine.encrypt(new byte[0]);
+        byte[] second = engine.encrypt(new byte[0]);
+
+        assertThat(Arrays.copyOfRange(first, 2, 2 + Hkdf.SALT_LENGTH))
+                .isNotEqualTo(Arrays.copyOfRange(second, 2, 2 + Hkdf.SALT_LENGTH));
+    }
+
+    @Test
+    void changedSaltFailsAuthentication() {
+        byte[] message = engine.encrypt("secret".getBytes());
+        message[2] ^= 1;
+
+        assertThatThrownBy(() -> engine.decrypt(message)).isInstanceOf(PayloadDecryptionException.class)
+                .hasMessageContaining("authentication");
+    }
+
+    @Test
+    void previousVersionIsRefused() {
+        byte[] message = engine.encrypt("secret".getBytes());
+        message[0] = 1;
+
+        assertThatThrownBy(() -> engine.decryptText(Base64.getEncoder().encodeToString(message)))
+                .isInstanceOf(PayloadDecryptionException.class)
+                .hasMessageContaining("version");
+    }
+}
@@ -0,0 +1,104 @@
+package com.alibou.security.encryption;
+
+import com.alibou.security.config.BufferPool;
+import com.alibou.security.service.ServiceFlagService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class PayloadEncryptionFilterTest {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private final EncryptionKeyRing keyRing = new EncryptionKeyRing(List.of("1:RRzcaBQoCV9+mSvFX1n6sw=="), 1);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BufferPool bufferPool = new BufferPool(1024, 8192, 2, false, meterRegistry);
+    private final PayloadEncryptionFilter filter = new PayloadEncryptionFilter(true, false, keyRing, bufferPool,
+            mock(ServiceFlagService.class), new ObjectMapper(), CHUNK_SIZE);
+
+    @Test
+    void encryptedJsonRoundTrips() throws ServletException, IOException {
+        MockHttpServletRequest request = encrypted("{\"name\":\"Jane\"}", MediaType.APPLICATION_JSON_VALUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> res.getOutputStream().write(req.getInputStream().readAllBytes()));
+
+        assertThat(response.getHeader(PayloadEncryptionFilter.HEADER)).isEqualTo(PayloadEncryptionFilter.SCHEME);
+        assertThat(decrypt(response.getContentAsByteArray())).isEqualTo("{\"name\":\"Jane\"}");
+    }
+
+    //a reset drops what was written so far, every pooled buffer still goes back once
+    @Test
+    void resetBeforeWritingAgainReturnsEveryBuffer() throws ServletException, IOException {
+        MockHttpServletRequest request = encrypted("{}", MediaType.APPLICATION_JSON_VALUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> {
+            res.getOutputStream().write("dropped".getBytes(StandardCharsets.UTF_8));
+            res.resetBuffer();
+            res.getOutputStream().write("first".getBytes(StandardCharsets.UTF_8));
+            res.reset();
+            res.getOutputStream().write("kept".getBytes(StandardCharsets.UTF_8));
+        });
+
+        assertThat(decrypt(response.getContentAsByteArray())).isEqualTo("kept");
+        assertThat(meterRegistry.get("buffers.pool.outstanding").gauge().value()).isZero();
+    }
+
+    //the container would parse the fields from the ciphertext
+    @Test
+    void encryptedFormBodyIsRefused() throws ServletException, IOException {
+        MockHttpServletRequest request = encrypted("name=Jane", MediaType.APPLICATION_FORM_URLENCODED_VALUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(415);
+        assertThat(chain.getRequest()).isNull();
+    }
+
+    @Test
+    void encryptedMultipartBodyIsRefused() throws ServletException, IOException {
+        MockHttpServletRequest request = encrypted("--x--", MediaType.MULTIPART_FORM_DATA_VALUE + "; boundary=x");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(415);
+        assertThat(chain.getRequest()).isNull();
+    }
+
+    private MockHttpServletRequest encrypted(String body, String contentType) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream encrypting = ChunkedAesGcm.encrypt(out, keyRing, CHUNK_SIZE)) {
+            encrypting.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/users/profile");
+        request.addHeader(PayloadEncryptionFilter.HEADER, PayloadEncryptionFilter.SCHEME);
+        request.setContentType(contentType);
+        request.setContent(out.toByteArray());
+        return request;
+    }
+
+    private String decrypt(byte[] message) throws IOException {
+        return new String(ChunkedAesGcm.decrypt(new ByteArrayInputStream(message), keyRing, CHUNK_SIZE).readAllBytes(),
+                StandardCharsets.UTF_8);
+    }
+}
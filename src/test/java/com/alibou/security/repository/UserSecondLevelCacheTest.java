@@ -0,0 +1,117 @@
+package com.alibou.security.repository;
+
+import com.alibou.security.H2TestDatabase;
+import com.alibou.security.entity.User;
+import com.alibou.security.enums.Role;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//second level and query cache settings of the test profile
+@DataJpaTest
+@H2TestDatabase
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+//every call below runs in its own transaction (and session), as it does in the application
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserSecondLevelCacheTest {
+
+    private static final String EMAIL = "cached@mail.com";
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+    private TransactionTemplate transaction;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        transaction = new TransactionTemplate(transactionManager);
+        entityManagerFactory.getCache().evictAll();
+        transaction.executeWithoutResult(status -> {
+            userRepository.deleteAll();
+            userRepository.save(User.builder()
+                    .firstName("Cached")
+                    .lastName("User")
+                    .email(EMAIL)
+                    .password("{bcrypt}hash")
+                    .role(Role.USER)
+                    .build());
+        });
+    }
+
+    @Test
+    void repeatedEmailLookupIssuesNoSql() {
+        //first lookup fills the query and entity regions
+        transaction.executeWithoutResult(status -> assertThat(userRepository.findByEmail(EMAIL)).isPresent());
+
+        statistics.clear();
+        User user = transaction.execute(status -> userRepository.findByEmail(EMAIL).orElseThrow());
+
+        assertThat(user.getEmail()).isEqualTo(EMAIL);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void lookupByIdIssuesNoSql() {
+        Integer id = transaction.execute(status -> userRepository.findByEmail(EMAIL).orElseThrow().getId());
+
+        statistics.clear();
+        transaction.executeWithoutResult(status -> assertThat(userRepository.findById(id)).isPresent());
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+    }
+
+    //a login in stateless mode bumps the user's version, the other users' cached entries have to survive it
+    @Test
+    void changingOneUserKeepsTheOthersCached() {
+        Integer other = transaction.execute(status -> userRepository.save(User.builder()
+                .firstName("Other")
+                .lastName("User")
+                .email("other@mail.com")
+                .password("{bcrypt}hash")
+                .role(Role.USER)
+                .build()).getId());
+        Integer id = transaction.execute(status -> userRepository.findByEmail(EMAIL).orElseThrow().getId());
+        transaction.executeWithoutResult(status -> userRepository.findById(other));
+
+        userRepository.incrementTokenVersion(id);
+        userRepository.updatePassword(EMAIL, "{bcrypt}new-hash");
+
+        statistics.clear();
+        transaction.executeWithoutResult(status -> assertThat(userRepository.findById(other)).isPresent());
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        User changed = transaction.execute(status -> userRepository.findById(id).orElseThrow());
+        assertThat(changed.getTokenVersion()).isEqualTo(1);
+        assertThat(changed.getPassword()).isEqualTo("{bcrypt}new-hash");
+    }
+
+    @Test
+    void passwordUpdateIsNotServedFromCache() {
+        transaction.executeWithoutResult(status -> userRepository.findByEmail(EMAIL));
+
+        userRepository.updatePassword(EMAIL, "{bcrypt}new-hash");
+
+        statistics.clear();
+        User user = transaction.execute(status -> userRepository.findByEmail(EMAIL).orElseThrow());
+        assertThat(user.getPassword()).isEqualTo("{bcrypt}new-hash");
+        assertThat(statistics.getPrepareStatementCount()).isPositive();
+    }
+}
@@ -0,0 +1,57 @@
+package com.alibou.security.screening;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PayloadScannerTest {
+
+    private final PayloadScanner scanner = PayloadScanner.compile(List.of("<script", "script:", "&lt;", "cript"));
+
+    @Test
+    void reportsEveryRuleInOnePass() {
+        long matched = scan("{\"name\":\"<SCRIPT>javascript:&LT;\"}");
+
+        assertThat(scanner.rules(matched)).containsExactly("<script", "script:", "&lt;", "cript");
+    }
+
+    @Test
+    void cleanBodyMatchesNothing() {
+        assertThat(scan("{\"name\":\"Jane <scrip t> lt;\"}")).isZero();
+    }
+
+    @Test
+    void matchSpanningTwoReadsIsFound() {
+        PayloadScanner.Scan scan = scanner.newScan();
+        byte[] first = "abc<scr".getBytes(StandardCharsets.UTF_8);
+        byte[] second = "ipt>".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(scan.update(first, 0, first.length)).isZero();
+        long matched = scan.update(second, 0, second.length);
+
+        assertThat(scanner.rules(matched)).containsExactly("<script", "cript");
+        assertThat(scan.scanned()).isEqualTo(first.length + second.length);
+    }
+
+    @Test
+    void maskSelectsRulesByName() {
+        assertThat(scanner.rules(scanner.mask(List.of("&LT;", "unknown")))).containsExactly("&lt;");
+    }
+
+    @Test
+    void tooManyRulesAreRefused() {
+        List<String> rules = IntStream.range(0, 65).mapToObj(i -> "rule" + i).toList();
+
+        assertThatThrownBy(() -> PayloadScanner.compile(rules)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private long scan(String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        return scanner.newScan().update(bytes, 0, bytes.length);
+    }
+}
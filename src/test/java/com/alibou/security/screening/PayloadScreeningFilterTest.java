@@ -0,0 +1,86 @@
+package com.alibou.security.screening;
+
+import com.alibou.security.config.BufferPool;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.mock.web.MockMultipartHttpServletRequest;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PayloadScreeningFilterTest {
+
+    private static final String URI = "/api/v1/users/profile";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PayloadScreeningFilter filter = new PayloadScreeningFilter(true, true, 1024, List.of("<script"),
+            List.of("/api/v1/auth/authenticate:*"), new BufferPool(1024, 8192, 2, false, meterRegistry),
+            new ObjectMapper(), meterRegistry);
+
+    @Test
+    void blockedJsonBodyIsRejected() throws ServletException, IOException {
+        MockHttpServletRequest request = post("{\"name\":\"<script>\"}", MediaType.APPLICATION_JSON_VALUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(400);
+        assertThat(chain.getRequest()).isNull();
+    }
+
+    //the container parses form fields from the raw body, so it has to reach the chain unread
+    @Test
+    void formBodyReachesTheChainUnread() throws ServletException, IOException {
+        String body = "name=%3Cb%3E&note=<script>";
+        MockHttpServletRequest request = post(body, MediaType.APPLICATION_FORM_URLENCODED_VALUE + ";charset=UTF-8");
+        request.addParameter("name", "<b>");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        HttpServletRequest passed = (HttpServletRequest) chain.getRequest();
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(passed).isSameAs(request);
+        assertThat(passed.getParameter("name")).isEqualTo("<b>");
+        assertThat(new String(passed.getInputStream().readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(body);
+    }
+
+    @Test
+    void multipartBodyKeepsItsParts() throws ServletException, IOException {
+        MockMultipartHttpServletRequest request = new MockMultipartHttpServletRequest();
+        request.setRequestURI(URI);
+        request.setContentType(MediaType.MULTIPART_FORM_DATA_VALUE + "; boundary=x");
+        request.setContent("--x\r\n\r\n<script>\r\n--x--".getBytes(StandardCharsets.UTF_8));
+        request.addFile(new MockMultipartFile("file", "doc.txt", "text/plain", "<script>".getBytes()));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(chain.getRequest()).isSameAs(request);
+        assertThat(((MultipartHttpServletRequest) chain.getRequest()).getFile("file")).isNotNull();
+        assertThat(request.getInputStream().readAllBytes()).isNotEmpty();
+    }
+
+    private static MockHttpServletRequest post(String body, String contentType) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", URI);
+        request.setContentType(contentType);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
@@ -0,0 +1,102 @@
+package com.alibou.security.service;
+
+import com.alibou.security.H2TestDatabase;
+import com.alibou.security.constants.CommonConstants;
+import com.alibou.security.dto.ServiceFlagsSnapshot;
+import com.alibou.security.entity.ServiceExtraFlag;
+import com.alibou.security.repository.ServiceExtraFlagRepository;
+import com.alibou.security.service.serviceImp.ServiceFlagServiceImp;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//flags of the test profile
+@DataJpaTest
+@Import(ServiceFlagServiceImp.class)
+@H2TestDatabase
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ServiceFlagServiceTest {
+
+    @Autowired
+    private ServiceFlagServiceImp serviceFlagService;
+    @Autowired
+    private ServiceExtraFlagRepository serviceExtraFlagRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        serviceExtraFlagRepository.deleteAll();
+        serviceExtraFlagRepository.save(ServiceExtraFlag.builder().service(CommonConstants.DEBUG).flag(1).build());
+        serviceFlagService.refresh();
+    }
+
+    @Test
+    void lookupsIssueNoSql() {
+        statistics.clear();
+
+        assertThat(serviceFlagService.isOn(CommonConstants.DEBUG)).isTrue();
+        assertThat(serviceFlagService.flag("missing")).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void unchangedTableIsNotReloaded() {
+        ServiceFlagsSnapshot before = serviceFlagService.snapshot();
+
+        serviceFlagService.checkForChanges();
+
+        assertThat(serviceFlagService.snapshot()).isSameAs(before);
+    }
+
+    @Test
+    void versionedUpdateIsPickedUpByTheCheck() {
+        ServiceExtraFlag debug = serviceExtraFlagRepository.findByService(CommonConstants.DEBUG).orElseThrow();
+        debug.setFlag(0);
+        serviceExtraFlagRepository.save(debug);
+        assertThat(serviceFlagService.isOn(CommonConstants.DEBUG)).isTrue();
+
+        serviceFlagService.checkForChanges();
+
+        assertThat(serviceFlagService.isOn(CommonConstants.DEBUG)).isFalse();
+    }
+
+    //same row count and version sum as before, only the new id tells them apart
+    @Test
+    void deleteAndInsertAtVersionZeroIsPickedUpByTheCheck() {
+        serviceExtraFlagRepository.deleteAll();
+        serviceExtraFlagRepository.save(ServiceExtraFlag.builder().service(CommonConstants.DEBUG).flag(0).build());
+
+        serviceFlagService.checkForChanges();
+
+        assertThat(serviceFlagService.isOn(CommonConstants.DEBUG)).isFalse();
+    }
+
+    @Test
+    void refreshPicksUpUpdateWithoutVersionBump() {
+        jdbcTemplate.update("update EXTERNAL_SERVICE_STATUS set STATUS = 0 where SERVICE_NAME = ?", CommonConstants.DEBUG);
+        serviceFlagService.checkForChanges();
+        assertThat(serviceFlagService.isOn(CommonConstants.DEBUG)).isTrue();
+
+        serviceFlagService.refresh();
+
+        assertThat(serviceFlagService.isOn(CommonConstants.DEBUG)).isFalse();
+    }
+}